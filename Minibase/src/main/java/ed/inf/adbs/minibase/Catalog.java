@@ -12,6 +12,8 @@ public class Catalog {
     private static Map<String, ArrayList<String>> schema_map = new HashMap<>();
     //path for database
     private static String db_path;
+    //statistics of each table, read when they are first needed
+    private static Map<String, TableStatistics> statistics_map = new HashMap<>();
 
     /**
      * Constructor for catalog
@@ -36,6 +38,7 @@ public class Catalog {
     public void initialize(String databaseDir){
         //database's path
         db_path = databaseDir;
+        statistics_map.clear();
         //schema's file path
         String schema = db_path + File.separator + "schema.txt";
         //readh from schema file, store each table's schema
@@ -64,6 +67,20 @@ public class Catalog {
         return schema_map.get(name);
     }
 
+    /**
+     * used to get the statistics of a table, they are read from the table's file at the first call
+     * @param name the table's name
+     * @return the statistics of this table
+     */
+    public static synchronized TableStatistics getStatistics(String name) {
+        TableStatistics statistics = statistics_map.get(name);
+        if (statistics == null) {
+            statistics = TableStatistics.read(new File(getFilePath(name)), getSchema(name).size());
+            statistics_map.put(name, statistics);
+        }
+        return statistics;
+    }
+
     /**
      * used to get this table's file path
      * @param name table name
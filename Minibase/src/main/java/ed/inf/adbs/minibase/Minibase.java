@@ -17,8 +17,8 @@ public class Minibase {
 
     public static void main(String[] args) {
 
-        if (args.length != 3) {
-            System.err.println("Usage: Minibase database_dir input_file output_file");
+        if (args.length != 3 && !(args.length == 4 && (args[3].equals("explain") || args[3].equals("analyze")))) {
+            System.err.println("Usage: Minibase database_dir input_file output_file [explain|analyze]");
             return;
         }
 
@@ -26,7 +26,12 @@ public class Minibase {
         String inputFile = args[1];
         String outputFile = args[2];
 
-        evaluateCQ(databaseDir, inputFile, outputFile);
+        if (args.length == 4) {
+            explainCQ(databaseDir, inputFile, outputFile, args[3].equals("analyze"));
+        }
+        else {
+            evaluateCQ(databaseDir, inputFile, outputFile);
+        }
 
     }
 
@@ -45,13 +50,66 @@ public class Minibase {
             //generate query plan and return root operator by QueryBuilder
             QueryBuilder qb = new QueryBuilder(query);
             Operator root = qb.runQueryBuilder();
-            //write output result to file
-            writeToFile(outputFile,root);
+            try {
+                //write output result to file
+                writeToFile(outputFile,root);
+            }
+            finally {
+                //delete the temporary files of the plan
+                root.close();
+            }
+        }
+        catch (Exception e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * print the query plan of input file's query with the estimated rows of its operators,
+     * in analyze mode the query is evaluated to outputFile first, and the actual rows, runs,
+     * time and allocated bytes of every operator are printed as well
+     * @param databaseDir database's directory
+     * @param inputFile input file
+     * @param outputFile output file, only written in analyze mode
+     * @param analyze whether the query is evaluated and measured
+     */
+    public static void explainCQ(String databaseDir, String inputFile, String outputFile, boolean analyze) {
+        Operator root = null;
+        try {
+            Catalog.getInstance().initialize(databaseDir);
+            Query query = QueryParser.parse(Paths.get(inputFile));
+            System.out.println((analyze ? "EXPLAIN ANALYZE " : "EXPLAIN ") + query);
+            long start = System.nanoTime();
+            QueryBuilder qb = new QueryBuilder(query, true);
+            root = qb.runQueryBuilder();
+            long planned = System.nanoTime();
+            if (root == null) {
+                return;
+            }
+            if (analyze) {
+                writeToFile(outputFile, root);
+            }
+            long finished = System.nanoTime();
+            System.out.print(new PlanExplainer(qb.getEstimatedRows(), analyze).explain(root));
+            //building the plan already reads tuples: semi-join reductions read their relations,
+            //and joins read the first tuple of each input, so this time is not only planning
+            System.out.println(String.format("Planning time: %.3f ms (includes semi-join reductions and the first tuples read by joins)",
+                    (planned - start) / 1e6));
+            if (analyze) {
+                System.out.println(String.format("Execution time: %.3f ms", (finished - planned) / 1e6));
+            }
         }
         catch (Exception e){
             e.printStackTrace();
         }
+        finally {
+            //delete the temporary files of the plan, also when it is only explained
+            if (root != null) {
+                root.close();
+            }
+        }
     }
+
     /**
      * This method is used to write the output data to output file
      * @param filePath the file path of output file
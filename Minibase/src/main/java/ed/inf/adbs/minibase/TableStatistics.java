@@ -0,0 +1,106 @@
+package ed.inf.adbs.minibase;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Class for the statistics of a table that the planner uses to estimate the size of query results:
+ * the number of rows, and the number of distinct values of each column.
+ * They are estimated from a sample of the first rows of the table's file. If the file has no more rows
+ * than the sample, the statistics are exact. Otherwise the number of rows is the file size divided by the
+ * average size of a sampled row, and the distinct values of a column are estimated by the GEE estimator:
+ * values that appear more than once in the sample are counted once, and values that appear exactly once
+ * are scaled up by the square root of rows / sampled rows.
+ */
+public class TableStatistics {
+    //max number of rows read from the file
+    public static final int SAMPLE_ROWS = 20000;
+    //estimated number of rows
+    private final long rowCount;
+    //estimated number of distinct values of each column
+    private final long[] distinctCounts;
+
+    /**
+     * constructor for table statistics
+     * @param rowCount number of rows
+     * @param distinctCounts number of distinct values of each column
+     */
+    public TableStatistics(long rowCount, long[] distinctCounts){
+        this.rowCount = rowCount;
+        this.distinctCounts = distinctCounts;
+    }
+
+    /**
+     * read the statistics of a table file
+     * @param file the table's file
+     * @param columns number of columns of the table
+     * @return statistics of the table
+     */
+    public static TableStatistics read(File file, int columns){
+        List<Map<String,Integer>> counts = new ArrayList<>();
+        for (int i = 0; i < columns; i++){
+            counts.add(new HashMap<>());
+        }
+        int sampled = 0;
+        long sampledBytes = 0;
+        boolean complete = true;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))){
+            String line;
+            while ((line = reader.readLine()) != null){
+                if (line.trim().isEmpty()){
+                    continue;
+                }
+                if (sampled == SAMPLE_ROWS){
+                    complete = false;
+                    break;
+                }
+                sampled++;
+                sampledBytes += line.length() + 1;
+                String[] values = line.split(",");
+                for (int i = 0; i < columns && i < values.length; i++){
+                    counts.get(i).merge(values[i].trim(), 1, Integer::sum);
+                }
+            }
+        }
+        catch (IOException e){
+            e.printStackTrace();
+        }
+        long rows = complete || sampledBytes == 0 ? sampled : Math.max(sampled, file.length() * sampled / sampledBytes);
+        long[] distinct = new long[columns];
+        for (int i = 0; i < columns; i++){
+            if (complete){
+                distinct[i] = counts.get(i).size();
+                continue;
+            }
+            long once = 0;
+            long more = 0;
+            for (int count: counts.get(i).values()){
+                if (count == 1){
+                    once++;
+                }
+                else {
+                    more++;
+                }
+            }
+            distinct[i] = Math.min(rows, Math.round(Math.sqrt((double) rows / sampled) * once) + more);
+        }
+        return new TableStatistics(rows, distinct);
+    }
+
+    /**
+     * get the number of rows
+     * @return estimated number of rows
+     */
+    public long getRowCount(){
+        return rowCount;
+    }
+
+    /**
+     * get the number of distinct values of a column
+     * @param column position of the column
+     * @return estimated number of distinct values, at least 1
+     */
+    public long getDistinctCount(int column){
+        return Math.max(1, distinctCounts[column]);
+    }
+}
@@ -2,6 +2,7 @@ package ed.inf.adbs.minibase.base;
 
 import ed.inf.adbs.minibase.Utils;
 
+import java.util.Collections;
 import java.util.List;
 
 public class Head {
@@ -9,12 +10,16 @@ public class Head {
 
     private List<Variable> variables;
 
-    private SumAggregate agg;
+    private List<SumAggregate> aggs;
 
     public Head(String name, List<Variable> variables, SumAggregate agg) {
+        this(name, variables, agg == null ? Collections.<SumAggregate>emptyList() : Collections.singletonList(agg));
+    }
+
+    public Head(String name, List<Variable> variables, List<SumAggregate> aggs) {
         this.name = name;
         this.variables = variables;
-        this.agg = agg;
+        this.aggs = aggs;
     }
 
     public String getName() {
@@ -26,17 +31,21 @@ public class Head {
     }
 
     public SumAggregate getSumAggregate() {
-        return agg;
+        return aggs.isEmpty() ? null : aggs.get(0);
+    }
+
+    public List<SumAggregate> getAggregates() {
+        return aggs;
     }
 
     @Override
     public String toString() {
-        if (agg == null) {
+        if (aggs.isEmpty()) {
             return name + "(" + Utils.join(variables, ", ") + ")";
         }
         if (variables.isEmpty()) {
-            return name + "(" + agg + ")";
+            return name + "(" + Utils.join(aggs, ", ") + ")";
         }
-        return name + "(" + Utils.join(variables, ", ") + ", " + agg + ")";
+        return name + "(" + Utils.join(variables, ", ") + ", " + Utils.join(aggs, ", ") + ")";
     }
 }
@@ -1,18 +1,28 @@
 package ed.inf.adbs.minibase.base;
 
 public class IntegerConstant extends Constant {
-    private Integer value;
+    private final int value;
 
-    public IntegerConstant(Integer value) {
+    public IntegerConstant(int value) {
         this.value = value;
     }
 
-    public Integer getValue() {
+    public int getValue() {
         return value;
     }
 
     @Override
     public String toString() {
-        return value.toString();
+        return Integer.toString(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IntegerConstant && value == ((IntegerConstant) o).value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(value);
     }
 }
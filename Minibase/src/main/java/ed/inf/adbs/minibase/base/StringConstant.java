@@ -15,4 +15,14 @@ public class StringConstant extends Constant {
     public String toString() {
         return "'" + value + "'";
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StringConstant && value.equals(((StringConstant) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+}
@@ -6,18 +6,29 @@ import java.util.List;
 
 public class SumAggregate extends Term {
 
+    private AggregateFunction function;
+
     private List<Term> productTerms;
 
     public SumAggregate(List<Term> terms) {
+        this(AggregateFunction.SUM, terms);
+    }
+
+    public SumAggregate(AggregateFunction function, List<Term> terms) {
+        this.function = function;
         this.productTerms = terms;
     }
 
+    public AggregateFunction getFunction() {
+        return function;
+    }
+
     public List<Term> getProductTerms() {
         return productTerms;
     }
 
     @Override
     public String toString() {
-        return "SUM(" + Utils.join(productTerms, " * ") + ")";
+        return function + "(" + Utils.join(productTerms, " * ") + ")";
     }
 }
@@ -0,0 +1,97 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class implements block nested loop join. Instead of scanning the whole right child
+ * once for every left tuple like joinOperator does, it buffers a block of left tuples in memory
+ * and scans the right child once per block, checking every right tuple against all buffered
+ * left tuples. So the right child only needs to be rescanned (number of left tuples / block size) times.
+ * Variable renaming and join condition checking are the same as joinOperator, so it is useful
+ * for any join condition, including theta joins like x < y that can not be hashed.
+ */
+public class BlockNestedLoopJoinOperator extends JoinOperator{
+    //default number of left tuples buffered in one block
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    //max number of left tuples buffered in one block
+    private final int blockSize;
+    //buffer for current block of left tuples
+    private final List<Tuple> block;
+    //position in current block of the next left tuple to be checked
+    private int blockIndex;
+
+    /**
+     * constructor for block nested loop join
+     * @param leftChild left child operator, the buffered side
+     * @param rightChild right child operator, scanned once per block
+     * @param comparisonAtom join conditions
+     * @param blockSize max number of left tuples in a block
+     */
+    public BlockNestedLoopJoinOperator(Operator leftChild, Operator rightChild, List<ComparisonAtom> comparisonAtom, int blockSize) {
+        super(leftChild, rightChild, comparisonAtom);
+        this.blockSize = Math.max(1, blockSize);
+        this.block = new ArrayList<>();
+        if (valid){
+            fillBlock();
+        }
+    }
+
+    /**
+     * load next block of left tuples, leftPointer is kept as the first tuple after this block.
+     */
+    private void fillBlock(){
+        block.clear();
+        blockIndex = 0;
+        while (leftPointer != null && block.size() < blockSize){
+            block.add(leftPointer);
+            leftPointer = leftChild.getNextTuple();
+        }
+    }
+
+    /**
+     * get next valid tuple after join these relations
+     * @return next valid tuple
+     */
+    @Override
+    public Tuple getNextTuple() {
+        //if this is not a possible join, return null
+        if (!valid){
+            return null;
+        }
+        while (!block.isEmpty() && rightPointer != null){
+            //check current right tuple against rest of the block
+            while (blockIndex < block.size()){
+                Tuple output = joinTuples(block.get(blockIndex), rightPointer);
+                blockIndex++;
+                if (output != null){
+                    return output;
+                }
+            }
+            //whole block checked, move to next right tuple
+            blockIndex = 0;
+            rightPointer = rightChild.getNextTuple();
+            //if reach end of rightChild, reset rightChild and start next block
+            if (rightPointer == null){
+                fillBlock();
+                if (block.isEmpty()){
+                    return null;
+                }
+                rightChild.reset();
+                rightPointer = rightChild.getNextTuple();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * reset to initial state
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        fillBlock();
+    }
+}
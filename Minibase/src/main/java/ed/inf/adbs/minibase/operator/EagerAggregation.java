@@ -0,0 +1,222 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.util.*;
+
+/**
+ * EagerAggregation rewrites a query with SUM() and COUNT() aggregates so that relations are aggregated
+ * before they are joined. Every relation is grouped by its key: the variables that the rest of the query
+ * still needs, which are the head variables, the variables shared with other relations and the variables
+ * of join conditions. For each group, a partial aggregation computes the number of tuples, and for every
+ * SUM() the sum of the product of its factors that belong to this relation. Each variable factor belongs
+ * to the first relation that has it. The partial aggregates are joined instead of the relations, and the
+ * query's aggregates become sums of products of partial aggregates. For example,
+ * Q(x, SUM(t)) :- R(x, y, z), S(x, w, t) becomes Q(x, SUM(c * s)) over R'(x, c) and S'(x, s),
+ * where c counts the R tuples of each x and s sums t over the S tuples of each x.
+ * A relation whose key has all its variables is not aggregated, its factors stay in the final products.
+ * The rewrite is applied if all aggregates are SUM() or COUNT() and all variable factors are integer
+ * columns, and it is only used if at least one relation is aggregated.
+ * All values are integers that wrap around, and a sum of products gives the same integer after wrapping
+ * in any order, so the results are the same as aggregating the joined tuples.
+ */
+public class EagerAggregation {
+    //the query's head
+    private final Head head;
+    //variables of the join conditions
+    private final Set<String> conditionVariables;
+    //the schema types of the columns each variable appears in
+    private final Map<String,List<String>> variableTypes;
+    //head of the final aggregation over the joined partial aggregates
+    private Head finalHead;
+
+    /**
+     * constructor for eager aggregation
+     * @param head the query's head
+     * @param joinConditions the comparisons checked by joins
+     * @param variableTypes the schema types, "int" or "string", of the columns each variable appears in
+     */
+    public EagerAggregation(Head head, List<ComparisonAtom> joinConditions, Map<String,List<String>> variableTypes){
+        this.head = head;
+        this.variableTypes = variableTypes;
+        this.conditionVariables = new HashSet<>();
+        for (ComparisonAtom compare: joinConditions){
+            if (compare.getTerm1() instanceof Variable){
+                conditionVariables.add(compare.getTerm1().toString());
+            }
+            if (compare.getTerm2() instanceof Variable){
+                conditionVariables.add(compare.getTerm2().toString());
+            }
+        }
+        this.finalHead = head;
+    }
+
+    /**
+     * check if the aggregates of the head allow aggregating relations before the join
+     * @return if all aggregates are SUM() or COUNT(), and all variable factors of SUM() are integer columns
+     */
+    public boolean canRewrite(){
+        if (head.getAggregates().isEmpty()){
+            return false;
+        }
+        for (SumAggregate aggregate: head.getAggregates()){
+            if (aggregate.getFunction() == AggregateFunction.COUNT){
+                continue;
+            }
+            if (aggregate.getFunction() != AggregateFunction.SUM){
+                return false;
+            }
+            for (Term term: aggregate.getProductTerms()){
+                List<String> types = variableTypes.get(term.toString());
+                if (term instanceof Variable && (types == null || !types.stream().allMatch("int"::equals))){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * put a partial aggregation on every relation that has variables the rest of the query does not need
+     * @param inputs base operators of the relations, in join order
+     * @return the operators to join, in the same order
+     */
+    public List<Operator> rewrite(List<Operator> inputs){
+        List<SumAggregate> aggregates = head.getAggregates();
+        //the relation each variable factor belongs to
+        Map<String,Integer> owners = new HashMap<>();
+        for (SumAggregate aggregate: aggregates){
+            for (Term term: aggregate.getProductTerms()){
+                if (term instanceof Variable && !owners.containsKey(term.toString())){
+                    for (int i = 0; i < inputs.size(); i++){
+                        if (inputs.get(i).getVariableList().contains(term.toString())){
+                            owners.put(term.toString(), i);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        for (SumAggregate aggregate: aggregates){
+            for (Term term: aggregate.getProductTerms()){
+                if (term instanceof Variable && !owners.containsKey(term.toString())){
+                    return inputs;
+                }
+            }
+        }
+        //factors of each final product, constants and factors of relations that are not aggregated
+        List<List<Term>> finalProducts = new ArrayList<>();
+        for (SumAggregate aggregate: aggregates){
+            List<Term> product = new ArrayList<>();
+            if (aggregate.getFunction() == AggregateFunction.SUM){
+                for (Term term: aggregate.getProductTerms()){
+                    if (!(term instanceof Variable)){
+                        product.add(term);
+                    }
+                }
+            }
+            finalProducts.add(product);
+        }
+        List<Operator> outputs = new ArrayList<>();
+        boolean rewritten = false;
+        for (int i = 0; i < inputs.size(); i++){
+            Operator input = inputs.get(i);
+            List<String> variables = input.getVariableList();
+            List<String> key = keyOf(i, inputs);
+            boolean aggregated = key != null && key.size() < variables.size();
+            //partial aggregates of this relation, and their names
+            List<SumAggregate> partials = new ArrayList<>();
+            List<String> names = new ArrayList<>(aggregated ? key : Collections.<String>emptyList());
+            String countName = "count#" + i;
+            if (aggregated){
+                partials.add(new SumAggregate(AggregateFunction.COUNT, new ArrayList<>()));
+                names.add(countName);
+            }
+            for (int a = 0; a < aggregates.size(); a++){
+                List<Term> factors = new ArrayList<>();
+                if (aggregates.get(a).getFunction() == AggregateFunction.SUM){
+                    for (Term term: aggregates.get(a).getProductTerms()){
+                        if (term instanceof Variable && owners.get(term.toString()).intValue() == i){
+                            factors.add(term);
+                        }
+                    }
+                }
+                if (!aggregated){
+                    finalProducts.get(a).addAll(factors);
+                }
+                else if (factors.isEmpty()){
+                    finalProducts.get(a).add(new Variable(countName));
+                }
+                else {
+                    String sumName = "sum#" + i + "#" + a;
+                    partials.add(new SumAggregate(AggregateFunction.SUM, factors));
+                    names.add(sumName);
+                    finalProducts.get(a).add(new Variable(sumName));
+                }
+            }
+            if (aggregated){
+                List<Variable> keyVariables = new ArrayList<>();
+                for (String variable: key){
+                    keyVariables.add(new Variable(variable));
+                }
+                Operator partial = new SumOperator(input, new Head(head.getName(), keyVariables, partials));
+                partial.variableList = names;
+                outputs.add(partial);
+                rewritten = true;
+            }
+            else {
+                outputs.add(input);
+            }
+        }
+        if (!rewritten){
+            return inputs;
+        }
+        List<SumAggregate> finalAggregates = new ArrayList<>();
+        for (List<Term> product: finalProducts){
+            if (product.isEmpty()){
+                product.add(new IntegerConstant(1));
+            }
+            finalAggregates.add(new SumAggregate(AggregateFunction.SUM, product));
+        }
+        finalHead = new Head(head.getName(), head.getVariables(), finalAggregates);
+        return outputs;
+    }
+
+    /**
+     * get the head of the final aggregation
+     * @return the rewritten head if any relation is aggregated, otherwise the query's head
+     */
+    public Head getFinalHead(){
+        return finalHead;
+    }
+
+    /**
+     * find the variables of a relation that the rest of the query needs
+     * @param index position of the relation
+     * @param inputs all relations
+     * @return the key variables in the relation's order, or null if a variable repeats in this relation,
+     * since grouping would lose the check that its positions are equal
+     */
+    private List<String> keyOf(int index, List<Operator> inputs){
+        List<String> variables = inputs.get(index).getVariableList();
+        if (new HashSet<>(variables).size() < variables.size()){
+            return null;
+        }
+        Set<String> needed = new HashSet<>(conditionVariables);
+        for (Variable variable: head.getVariables()){
+            needed.add(variable.getName());
+        }
+        for (int i = 0; i < inputs.size(); i++){
+            if (i != index){
+                needed.addAll(inputs.get(i).getVariableList());
+            }
+        }
+        List<String> key = new ArrayList<>();
+        for (String variable: variables){
+            if (needed.contains(variable)){
+                key.add(variable);
+            }
+        }
+        return key;
+    }
+}
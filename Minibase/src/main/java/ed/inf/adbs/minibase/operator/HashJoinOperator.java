@@ -0,0 +1,432 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class implements a parallel partitioned hash join for joins that have at least one equality
+ * between a left variable and a right variable, including the equalities that joinOperator adds for
+ * shared variables. Only the right child, the build side, is kept in memory: on the first call of
+ * getNextTuple() it is read and radix-partitioned by the hash of its join key, each worker thread
+ * partitions a chunk of it, and then every partition's hash table is built by a worker thread.
+ * The left child, the probe side, is not materialized. With 1 thread each left tuple is probed in the
+ * table of its partition as it is read, and its matches are returned before the next left tuple is read.
+ * With more threads, a batch of at most PROBE_BATCH left tuples per thread is read and split between the
+ * worker threads, which probe their chunks in parallel, so only the outputs of one batch are buffered.
+ * The outputs are returned in the order of the left tuples. A matched pair is still checked against all
+ * join conditions by joinEvaluation, so conditions like x < y are applied as well.
+ * The right child is read first, and if runtime filters are enabled, the values of each join key
+ * on the right side are summarised in a runtimeFilter that is given to the scans under the left child,
+ * so left rows that can not match are dropped by the scan before their tuples are built.
+ */
+public class HashJoinOperator extends JoinOperator{
+    //default number of worker threads
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+    //number of left tuples each worker thread probes in a batch of a parallel join
+    public static final int PROBE_BATCH = 1024;
+    //number of worker threads
+    private final int threads;
+    //whether runtime filters are published to the scans of the left child
+    private final boolean useRuntimeFilters;
+    //published runtime filters
+    private final List<RuntimeFilter> runtimeFilters;
+    //positions of the join key in left tuples and in right tuples
+    private final List<Integer> leftKeys;
+    private final List<Integer> rightKeys;
+    //hash table of the right tuples of each partition, built on the first call of getNextTuple()
+    private List<Map<List<Term>,List<Tuple>>> tables;
+    //worker threads, null if single threaded or if the left child has been read to the end
+    private ExecutorService pool;
+    //output tuples of the current left tuple or batch of left tuples, and position of the next one
+    private final List<Tuple> pending;
+    private int pendingIndex;
+
+    /**
+     * constructor for hash join
+     * @param leftChild left child operator, the probe side
+     * @param rightChild right child operator, the build side
+     * @param comparisonAtom join conditions
+     * @param threads number of worker threads
+     * @param useRuntimeFilters whether to publish runtime filters to the scans of the left child
+     */
+    public HashJoinOperator(Operator leftChild, Operator rightChild, List<ComparisonAtom> comparisonAtom, int threads, boolean useRuntimeFilters) {
+        super(leftChild, rightChild, comparisonAtom);
+        this.threads = Math.max(1, threads);
+        this.useRuntimeFilters = useRuntimeFilters;
+        this.runtimeFilters = new ArrayList<>();
+        this.leftKeys = new ArrayList<>();
+        this.rightKeys = new ArrayList<>();
+        this.pending = new ArrayList<>();
+        if (valid){
+            findKeys();
+        }
+    }
+
+    /**
+     * check if a join between these 2 variable tables can use a hash join, which is true if they
+     * share a variable or one of the join conditions is an equality between their variables
+     * @param leftVariables left child's variables
+     * @param rightVariables right child's variables
+     * @param comparisonAtoms join conditions
+     * @return if there is an equality join key
+     */
+    public static boolean hasEqualityKey(List<String> leftVariables, List<String> rightVariables, List<ComparisonAtom> comparisonAtoms){
+        if (leftVariables == null || rightVariables == null){
+            return false;
+        }
+        for (String variable: rightVariables){
+            if (!variable.equals("constant") && leftVariables.contains(variable)){
+                return true;
+            }
+        }
+        for (ComparisonAtom compare: comparisonAtoms){
+            if (compare.getOp() == ComparisonOperator.EQ && compare.getTerm1() instanceof Variable && compare.getTerm2() instanceof Variable){
+                String variable1 = compare.getTerm1().toString();
+                String variable2 = compare.getTerm2().toString();
+                if ((leftVariables.contains(variable1) && rightVariables.contains(variable2))
+                        || (leftVariables.contains(variable2) && rightVariables.contains(variable1))){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * find the join key from equalities between a left variable and a right variable
+     */
+    private void findKeys(){
+        for (ComparisonAtom compare: comparisonAtom){
+            if (compare.getOp() != ComparisonOperator.EQ || !(compare.getTerm1() instanceof Variable) || !(compare.getTerm2() instanceof Variable)){
+                continue;
+            }
+            String variable1 = compare.getTerm1().toString();
+            String variable2 = compare.getTerm2().toString();
+            if (leftVariables.contains(variable1) && rightVariables.contains(variable2)){
+                leftKeys.add(leftVariables.indexOf(variable1));
+                rightKeys.add(rightVariables.indexOf(variable2));
+            }
+            else if (leftVariables.contains(variable2) && rightVariables.contains(variable1)){
+                leftKeys.add(leftVariables.indexOf(variable2));
+                rightKeys.add(rightVariables.indexOf(variable1));
+            }
+        }
+    }
+
+    /**
+     * get next valid tuple after join these relations
+     * @return next valid tuple
+     */
+    @Override
+    public Tuple getNextTuple() {
+        //if this is not a possible join, return null
+        if (!valid){
+            return null;
+        }
+        if (tables == null){
+            build();
+        }
+        while (pendingIndex >= pending.size()){
+            if (leftPointer == null){
+                shutdown();
+                return null;
+            }
+            pending.clear();
+            pendingIndex = 0;
+            probeNext();
+        }
+        return pending.get(pendingIndex++);
+    }
+
+    /**
+     * read the right child, partition it and build the hash table of every partition
+     */
+    private void build(){
+        List<Tuple> rightTuples = readAll(rightChild, rightPointer);
+        if (useRuntimeFilters && rightTuples.size() <= RuntimeFilter.MAX_KEYS){
+            publishRuntimeFilters(rightTuples);
+        }
+        //use more partitions than threads so the work is balanced between threads
+        int partitions = threads == 1 ? 1 : Integer.highestOneBit(threads * 4 - 1) << 1;
+        startPool();
+        final List<List<KeyedTuple>> rightPartitions = partition(pool, rightTuples, rightKeys, partitions);
+        List<Callable<Map<List<Term>,List<Tuple>>>> tasks = new ArrayList<>();
+        for (final List<KeyedTuple> rightPartition: rightPartitions){
+            tasks.add(() -> buildTable(rightPartition));
+        }
+        tables = runAll(pool, tasks);
+    }
+
+    /**
+     * read the next left tuple, or with worker threads the next batch of left tuples,
+     * and probe the hash tables with them
+     */
+    private void probeNext(){
+        if (pool == null){
+            probe(leftPointer, pending);
+            leftPointer = leftChild.getNextTuple();
+            return;
+        }
+        final List<Tuple> batch = new ArrayList<>();
+        while (leftPointer != null && batch.size() < threads * PROBE_BATCH){
+            batch.add(leftPointer);
+            leftPointer = leftChild.getNextTuple();
+        }
+        final int chunkSize = (batch.size() + threads - 1) / threads;
+        List<Callable<List<Tuple>>> tasks = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += chunkSize){
+            final List<Tuple> chunk = batch.subList(from, Math.min(batch.size(), from + chunkSize));
+            tasks.add(() -> {
+                List<Tuple> outputs = new ArrayList<>();
+                for (Tuple left: chunk){
+                    probe(left, outputs);
+                }
+                return outputs;
+            });
+        }
+        for (List<Tuple> outputs: runAll(pool, tasks)){
+            pending.addAll(outputs);
+        }
+    }
+
+    /**
+     * probe the hash table of a left tuple's partition and collect its joined tuples
+     * @param left the left tuple
+     * @param outputs list the joined tuples are added to
+     */
+    private void probe(Tuple left, List<Tuple> outputs){
+        List<Term> key = key(left, leftKeys);
+        List<Tuple> matches = tables.get(partitionOf(key, tables.size())).get(key);
+        if (matches == null){
+            return;
+        }
+        for (Tuple right: matches){
+            Tuple output = joinTuples(left, right);
+            if (output != null){
+                outputs.add(output);
+            }
+        }
+    }
+
+    /**
+     * start the worker threads if this join has more than 1 thread, they are daemon threads
+     * so a join whose parent stops reading early does not keep the program running
+     */
+    private void startPool(){
+        if (threads > 1 && pool == null){
+            pool = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "hash-join");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * stop the worker threads
+     */
+    private void shutdown(){
+        if (pool != null){
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * build a runtime filter for every join key from the right tuples, and add it to
+     * the scans under the left child that produce this key
+     * @param rightTuples all right tuples
+     */
+    private void publishRuntimeFilters(List<Tuple> rightTuples){
+        for (int k = 0; k < leftKeys.size(); k++){
+            List<Term> keys = new ArrayList<>();
+            for (Tuple tuple: rightTuples){
+                keys.add(tuple.getTerms().get(rightKeys.get(k)));
+            }
+            RuntimeFilter filter = new RuntimeFilter(keys);
+            if (addToScans(leftChild, leftVariables.get(leftKeys.get(k)), filter)){
+                runtimeFilters.add(filter);
+            }
+        }
+    }
+
+    /**
+     * add a runtime filter to every scan under this operator that has this variable
+     * @param operator root of the subtree
+     * @param variable the filtered variable
+     * @param filter the filter
+     * @return if the filter is added to any scan
+     */
+    private static boolean addToScans(Operator operator, String variable, RuntimeFilter filter){
+        if (operator instanceof ScanOperator){
+            return ((ScanOperator) operator).addRuntimeFilter(variable, filter);
+        }
+        boolean added = false;
+        for (Operator child: operator.getChildren()){
+            added |= addToScans(child, variable, filter);
+        }
+        return added;
+    }
+
+    /**
+     * get the runtime filters published by this join
+     * @return list of filters
+     */
+    public List<RuntimeFilter> getRuntimeFilters(){
+        return runtimeFilters;
+    }
+
+    /**
+     * radix-partition tuples by the hash of their join key, every thread partitions a chunk of the tuples
+     * @param pool thread pool, null if single threaded
+     * @param tuples input tuples
+     * @param keys positions of the join key
+     * @param partitions number of partitions, a power of 2
+     * @return tuples of each partition, in input order
+     */
+    private List<List<KeyedTuple>> partition(ExecutorService pool, final List<Tuple> tuples, final List<Integer> keys, final int partitions){
+        int chunks = Math.min(threads, Math.max(1, tuples.size()));
+        final int chunkSize = (tuples.size() + chunks - 1) / chunks;
+        List<Callable<List<List<KeyedTuple>>>> tasks = new ArrayList<>();
+        for (int c = 0; c < chunks; c++){
+            final int from = c * chunkSize;
+            final int to = Math.min(tuples.size(), from + chunkSize);
+            tasks.add(() -> {
+                List<List<KeyedTuple>> chunkPartitions = new ArrayList<>();
+                for (int p = 0; p < partitions; p++){
+                    chunkPartitions.add(new ArrayList<>());
+                }
+                for (int i = from; i < to; i++){
+                    KeyedTuple keyed = new KeyedTuple(key(tuples.get(i), keys), tuples.get(i));
+                    chunkPartitions.get(partitionOf(keyed.key, partitions)).add(keyed);
+                }
+                return chunkPartitions;
+            });
+        }
+        List<List<KeyedTuple>> result = new ArrayList<>();
+        for (int p = 0; p < partitions; p++){
+            result.add(new ArrayList<>());
+        }
+        for (List<List<KeyedTuple>> chunkPartitions: runAll(pool, tasks)){
+            for (int p = 0; p < partitions; p++){
+                result.get(p).addAll(chunkPartitions.get(p));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * find the partition of a join key
+     * @param key the join key
+     * @param partitions number of partitions, a power of 2
+     * @return position of the partition
+     */
+    private static int partitionOf(List<Term> key, int partitions){
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return hash & (partitions - 1);
+    }
+
+    /**
+     * build the hash table of one partition of the right tuples
+     * @param rightTuples right tuples of this partition
+     * @return map from join key to the right tuples that have it
+     */
+    private static Map<List<Term>,List<Tuple>> buildTable(List<KeyedTuple> rightTuples){
+        Map<List<Term>,List<Tuple>> table = new HashMap<>();
+        for (KeyedTuple right: rightTuples){
+            table.computeIfAbsent(right.key, k -> new ArrayList<>()).add(right.tuple);
+        }
+        return table;
+    }
+
+    /**
+     * run tasks on the thread pool, or in this thread if there is no pool
+     * @param pool thread pool, null if single threaded
+     * @param tasks the tasks
+     * @return results of the tasks, in task order
+     */
+    private static <T> List<T> runAll(ExecutorService pool, List<Callable<T>> tasks){
+        List<T> results = new ArrayList<>();
+        try {
+            if (pool == null){
+                for (Callable<T> task: tasks){
+                    results.add(task.call());
+                }
+            }
+            else {
+                for (Future<T> future: pool.invokeAll(tasks)){
+                    results.add(future.get());
+                }
+            }
+        }
+        catch (Exception e){
+            throw new IllegalStateException("hash join failed", e);
+        }
+        return results;
+    }
+
+    /**
+     * build the join key of a tuple from the values at these positions
+     * @param tuple the tuple
+     * @param positions positions of the key
+     * @return join key, constants are compared by value
+     */
+    private static List<Term> key(Tuple tuple, List<Integer> positions){
+        List<Term> values = new ArrayList<>(positions.size());
+        for (Integer position: positions){
+            values.add(tuple.getTerms().get(position));
+        }
+        return values;
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the join conditions and the number of worker threads
+     */
+    @Override
+    public String describe(){
+        return super.describe() + ", " + threads + (threads == 1 ? " thread" : " threads");
+    }
+
+    /**
+     * reset to initial state, the hash tables are kept so the right child is not read again,
+     * and the left child is probed again from its first tuple
+     */
+    @Override
+    public void reset() {
+        if (tables == null){
+            super.reset();
+            return;
+        }
+        leftChild.reset();
+        leftPointer = leftChild.getNextTuple();
+        pending.clear();
+        pendingIndex = 0;
+        startPool();
+    }
+
+    /**
+     * stop the worker threads, also if the left child was not probed to the end
+     */
+    @Override
+    public void close() {
+        shutdown();
+        super.close();
+    }
+
+    /**
+     * a tuple with its join key
+     */
+    private static class KeyedTuple{
+        private final List<Term> key;
+        private final Tuple tuple;
+
+        KeyedTuple(List<Term> key, Tuple tuple){
+            this.key = key;
+            this.tuple = tuple;
+        }
+    }
+}
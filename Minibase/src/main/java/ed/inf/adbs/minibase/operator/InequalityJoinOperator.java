@@ -0,0 +1,292 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.util.*;
+
+/**
+ * This class implements an inequality join for joins whose conditions compare a left variable with a
+ * right variable by <, <=, > or >=, like R(x, y, z), S(u, v, w), y < w. Both children are read into
+ * memory and sorted on the compared variables, then the left tuples are swept in order of the first
+ * inequality. Because of the sorting, the right tuples that satisfy the first inequality for the current
+ * left tuple always grow as the sweep goes on, so each right tuple is added to the active set only once.
+ * If there is a second inequality, the active right tuples are marked in a bit array ordered by the second
+ * compared variable (like IEJoin), so the matches of the current left tuple are the marked bits in one
+ * range of this array. Every found pair is still checked against all join conditions by joinEvaluation.
+ */
+public class InequalityJoinOperator extends JoinOperator{
+    //the compared positions in left and right tuples, and the operators in the form "left op right",
+    //at most 2 inequalities are used, the others are only checked by joinEvaluation
+    private final List<Integer> leftColumns;
+    private final List<Integer> rightColumns;
+    private final List<ComparisonOperator> operators;
+    //left tuples in sweep order
+    private List<Tuple> leftTuples;
+    //right tuples in the order they become active
+    private List<Tuple> rightBySweep;
+    //right tuples sorted by the second compared variable, and the rank in it of each tuple of rightBySweep
+    private List<Tuple> rightBySecond;
+    private int[] secondRank;
+    //ranks of active right tuples when there is a second inequality
+    private BitSet active;
+    //number of active right tuples in rightBySweep
+    private int activeCount;
+    //position of the current left tuple in leftTuples
+    private int leftIndex;
+    //output tuples of the current left tuple
+    private final List<Tuple> pending;
+    private int pendingIndex;
+
+    /**
+     * constructor for inequality join
+     * @param leftChild left child operator
+     * @param rightChild right child operator
+     * @param comparisonAtom join conditions
+     */
+    public InequalityJoinOperator(Operator leftChild, Operator rightChild, List<ComparisonAtom> comparisonAtom) {
+        super(leftChild, rightChild, comparisonAtom);
+        this.leftColumns = new ArrayList<>();
+        this.rightColumns = new ArrayList<>();
+        this.operators = new ArrayList<>();
+        this.pending = new ArrayList<>();
+        if (valid){
+            findInequalities(leftVariables, rightVariables, comparisonAtom, leftColumns, rightColumns, operators);
+        }
+    }
+
+    /**
+     * check if a join between these 2 variable tables has an inequality between a left variable and a right variable
+     * @param leftVariables left child's variables
+     * @param rightVariables right child's variables
+     * @param comparisonAtoms join conditions
+     * @return if an inequality join can be used
+     */
+    public static boolean hasInequality(List<String> leftVariables, List<String> rightVariables, List<ComparisonAtom> comparisonAtoms){
+        if (leftVariables == null || rightVariables == null){
+            return false;
+        }
+        List<Integer> columns = new ArrayList<>();
+        findInequalities(leftVariables, rightVariables, comparisonAtoms, columns, new ArrayList<>(), new ArrayList<>());
+        return !columns.isEmpty();
+    }
+
+    /**
+     * find at most 2 inequalities between a left variable and a right variable
+     * @param leftVariables left child's variables
+     * @param rightVariables right child's variables
+     * @param comparisonAtoms join conditions
+     * @param leftColumns found left positions
+     * @param rightColumns found right positions
+     * @param operators found operators, in the form "left op right"
+     */
+    private static void findInequalities(List<String> leftVariables, List<String> rightVariables, List<ComparisonAtom> comparisonAtoms,
+                                         List<Integer> leftColumns, List<Integer> rightColumns, List<ComparisonOperator> operators){
+        for (ComparisonAtom compare: comparisonAtoms){
+            ComparisonOperator op = compare.getOp();
+            if (op == ComparisonOperator.EQ || op == ComparisonOperator.NEQ || operators.size() == 2){
+                continue;
+            }
+            if (!(compare.getTerm1() instanceof Variable) || !(compare.getTerm2() instanceof Variable)){
+                continue;
+            }
+            String variable1 = compare.getTerm1().toString();
+            String variable2 = compare.getTerm2().toString();
+            if (leftVariables.contains(variable1) && rightVariables.contains(variable2)){
+                leftColumns.add(leftVariables.indexOf(variable1));
+                rightColumns.add(rightVariables.indexOf(variable2));
+                operators.add(op);
+            }
+            else if (leftVariables.contains(variable2) && rightVariables.contains(variable1)){
+                leftColumns.add(leftVariables.indexOf(variable2));
+                rightColumns.add(rightVariables.indexOf(variable1));
+                operators.add(TupleCompiler.flip(op));
+            }
+        }
+    }
+
+    /**
+     * read and sort both children. For "left < right" and "left <= right" the sweep goes from large
+     * values to small values, so right tuples with large values become active first, otherwise from
+     * small values to large values.
+     */
+    private void prepare(){
+        final int leftColumn = leftColumns.get(0);
+        final int rightColumn = rightColumns.get(0);
+        ComparisonOperator op = operators.get(0);
+        final int direction = (op == ComparisonOperator.LT || op == ComparisonOperator.LEQ) ? -1 : 1;
+        leftTuples = readAll(leftChild, leftPointer);
+        rightBySweep = readAll(rightChild, rightPointer);
+        leftTuples.sort((a, b) -> direction * Tuple.compareTerms(a.getTerms().get(leftColumn), b.getTerms().get(leftColumn)));
+        rightBySweep.sort((a, b) -> direction * Tuple.compareTerms(a.getTerms().get(rightColumn), b.getTerms().get(rightColumn)));
+        if (operators.size() == 2){
+            final int secondColumn = rightColumns.get(1);
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < rightBySweep.size(); i++){
+                order.add(i);
+            }
+            order.sort((a, b) -> Tuple.compareTerms(rightBySweep.get(a).getTerms().get(secondColumn), rightBySweep.get(b).getTerms().get(secondColumn)));
+            rightBySecond = new ArrayList<>();
+            secondRank = new int[order.size()];
+            for (int rank = 0; rank < order.size(); rank++){
+                rightBySecond.add(rightBySweep.get(order.get(rank)));
+                secondRank[order.get(rank)] = rank;
+            }
+            active = new BitSet(rightBySecond.size());
+        }
+        activeCount = 0;
+        leftIndex = 0;
+        pending.clear();
+        pendingIndex = 0;
+    }
+
+    /**
+     * get next valid tuple after join these relations
+     * @return next valid tuple
+     */
+    @Override
+    public Tuple getNextTuple() {
+        //if this is not a possible join, return null
+        if (!valid){
+            return null;
+        }
+        //without an inequality between the 2 sides, every pair is checked like in joinOperator
+        if (leftColumns.isEmpty()){
+            return super.getNextTuple();
+        }
+        if (leftTuples == null){
+            prepare();
+        }
+        while (pendingIndex >= pending.size()){
+            if (leftIndex >= leftTuples.size()){
+                return null;
+            }
+            pending.clear();
+            pendingIndex = 0;
+            matchLeft(leftTuples.get(leftIndex++));
+        }
+        return pending.get(pendingIndex++);
+    }
+
+    /**
+     * activate right tuples that satisfy the first inequality with this left tuple,
+     * and collect the outputs of this left tuple
+     * @param left the left tuple
+     */
+    private void matchLeft(Tuple left){
+        Term leftValue = left.getTerms().get(leftColumns.get(0));
+        int rightColumn = rightColumns.get(0);
+        while (activeCount < rightBySweep.size()
+                && satisfies(leftValue, operators.get(0), rightBySweep.get(activeCount).getTerms().get(rightColumn))){
+            if (active != null){
+                active.set(secondRank[activeCount]);
+            }
+            activeCount++;
+        }
+        if (active == null){
+            for (int i = 0; i < activeCount; i++){
+                addIfJoined(left, rightBySweep.get(i));
+            }
+            return;
+        }
+        //the right tuples satisfying the second inequality are a range of rightBySecond
+        Term secondValue = left.getTerms().get(leftColumns.get(1));
+        int secondColumn = rightColumns.get(1);
+        int from = 0;
+        int to = rightBySecond.size();
+        switch (operators.get(1)){
+            case LT:
+                from = bound(secondValue, secondColumn, true);
+                break;
+            case LEQ:
+                from = bound(secondValue, secondColumn, false);
+                break;
+            case GT:
+                to = bound(secondValue, secondColumn, false);
+                break;
+            default:
+                to = bound(secondValue, secondColumn, true);
+                break;
+        }
+        for (int i = active.nextSetBit(from); i >= 0 && i < to; i = active.nextSetBit(i + 1)){
+            addIfJoined(left, rightBySecond.get(i));
+        }
+    }
+
+    /**
+     * find the first position in rightBySecond whose value is greater than (upper is true)
+     * or not less than (upper is false) the given value
+     * @param value the value
+     * @param column compared position in right tuples
+     * @param upper upper bound or lower bound
+     * @return the position
+     */
+    private int bound(Term value, int column, boolean upper){
+        int low = 0;
+        int high = rightBySecond.size();
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            int result = Tuple.compareTerms(rightBySecond.get(middle).getTerms().get(column), value);
+            if (result < 0 || (upper && result == 0)){
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * check "left op right"
+     */
+    private static boolean satisfies(Term left, ComparisonOperator op, Term right){
+        int result = Tuple.compareTerms(left, right);
+        switch (op){
+            case LT: return result < 0;
+            case LEQ: return result <= 0;
+            case GT: return result > 0;
+            default: return result >= 0;
+        }
+    }
+
+    /**
+     * check a pair against all join conditions and keep its output if it is valid
+     */
+    private void addIfJoined(Tuple left, Tuple right){
+        Tuple output = joinTuples(left, right);
+        if (output != null){
+            pending.add(output);
+        }
+    }
+
+    /**
+     * get the variables the output tuples are ordered by, the outputs of each left tuple are returned
+     * together and the left tuples are swept in order of the first compared left variable
+     * @return the first compared left variable
+     */
+    @Override
+    public List<String> getOrdering(){
+        if (!valid || leftColumns.isEmpty()){
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(leftVariables.get(leftColumns.get(0)));
+    }
+
+    /**
+     * reset to initial state, the sorted children are kept so they are not read again
+     */
+    @Override
+    public void reset() {
+        if (leftTuples == null){
+            super.reset();
+            return;
+        }
+        if (active != null){
+            active.clear();
+        }
+        activeCount = 0;
+        leftIndex = 0;
+        pending.clear();
+        pendingIndex = 0;
+    }
+}
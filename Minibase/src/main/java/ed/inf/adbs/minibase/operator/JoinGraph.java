@@ -0,0 +1,248 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+
+import java.util.*;
+
+/**
+ * This class describes how the relations of a query are connected by their shared variables.
+ * Each relation is a hyperedge that contains its variables, and it is used by QueryBuilder
+ * to analyse the shape of a query before choosing a join algorithm.
+ */
+public class JoinGraph {
+    //the relations of the query
+    private final List<RelationalAtom> atoms;
+    //variables of each relation, in the same order as atoms
+    private final List<Set<String>> edges;
+
+    /**
+     * constructor for join graph
+     * @param atoms relations of the query, all terms should already be variables
+     */
+    public JoinGraph(List<RelationalAtom> atoms){
+        this.atoms = atoms;
+        this.edges = new ArrayList<>();
+        for (RelationalAtom atom: atoms){
+            edges.add(variablesOf(atom));
+        }
+    }
+
+    /**
+     * get the variable names of a relation
+     * @param atom the relation
+     * @return set of its variable names, keep their appear order
+     */
+    public static Set<String> variablesOf(RelationalAtom atom){
+        Set<String> variables = new LinkedHashSet<>();
+        for (Term term: atom.getTerms()){
+            if (term instanceof Variable){
+                variables.add(((Variable) term).getName());
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * check if the query is acyclic, see joinTree()
+     * @return if the query is acyclic
+     */
+    public boolean isAcyclic(){
+        return joinTree() != null;
+    }
+
+    /**
+     * build a join tree by GYO reduction: repeatedly remove variables that only appear in one
+     * relation, and remove a relation whose variables are contained in another relation, this
+     * other relation becomes its parent in the join tree. The query is acyclic if and only if
+     * only one relation is left at the end, and it becomes the root of the join tree.
+     * @return the join tree, or null if the query is cyclic
+     */
+    public JoinTree joinTree(){
+        List<Set<String>> remaining = new ArrayList<>();
+        List<Integer> alive = new ArrayList<>();
+        for (int i = 0; i < edges.size(); i++){
+            remaining.add(new HashSet<>(edges.get(i)));
+            alive.add(i);
+        }
+        int[] parent = new int[edges.size()];
+        Arrays.fill(parent, -1);
+        List<Integer> order = new ArrayList<>();
+        while (alive.size() > 1){
+            boolean changed = false;
+            //remove variables that only appear in one relation
+            Map<String,Integer> count = new HashMap<>();
+            for (Integer i: alive){
+                for (String variable: remaining.get(i)){
+                    count.merge(variable, 1, Integer::sum);
+                }
+            }
+            for (Integer i: alive){
+                if (remaining.get(i).removeIf(variable -> count.get(variable) == 1)){
+                    changed = true;
+                }
+            }
+            //remove one relation that is contained in another relation
+            for (int k = 0; k < alive.size(); k++){
+                int container = findContainer(remaining, alive, alive.get(k));
+                if (container >= 0){
+                    parent[alive.get(k)] = container;
+                    order.add(alive.remove(k));
+                    changed = true;
+                    break;
+                }
+            }
+            if (!changed){
+                return null;
+            }
+        }
+        order.addAll(alive);
+        return new JoinTree(parent, order);
+    }
+
+    /**
+     * split relations into connected components, 2 relations are connected if they share a variable
+     * or a join condition compares a variable of one with a variable of the other. Relations of
+     * different components can only be joined by a cross product.
+     * @param edges variables of each relation
+     * @param joinConditions the comparisons between variables of different relations
+     * @return the components in the order of their first relation, each component lists its relations
+     * in an order where every relation is connected to a relation before it, and otherwise keeps their order
+     */
+    public static List<List<Integer>> components(List<Set<String>> edges, List<ComparisonAtom> joinConditions){
+        List<List<Integer>> components = new ArrayList<>();
+        boolean[] used = new boolean[edges.size()];
+        for (int start = 0; start < edges.size(); start++){
+            if (used[start]){
+                continue;
+            }
+            List<Integer> component = new ArrayList<>();
+            Set<String> variables = new HashSet<>(edges.get(start));
+            component.add(start);
+            used[start] = true;
+            //add the first relation connected to the component until there is none
+            boolean added = true;
+            while (added){
+                added = false;
+                for (int i = 0; i < edges.size() && !added; i++){
+                    if (!used[i] && isConnected(variables, edges.get(i), joinConditions)){
+                        component.add(i);
+                        variables.addAll(edges.get(i));
+                        used[i] = true;
+                        added = true;
+                    }
+                }
+            }
+            components.add(component);
+        }
+        return components;
+    }
+
+    /**
+     * check if a relation is connected to some variables
+     * @param variables the variables
+     * @param edge variables of the relation
+     * @param joinConditions the comparisons between variables of different relations
+     * @return if the relation has one of the variables, or a join condition compares one of them with the relation's variable
+     */
+    private static boolean isConnected(Set<String> variables, Set<String> edge, List<ComparisonAtom> joinConditions){
+        for (String variable: edge){
+            if (!variable.equals("constant") && variables.contains(variable)){
+                return true;
+            }
+        }
+        for (ComparisonAtom compare: joinConditions){
+            String variable1 = compare.getTerm1().toString();
+            String variable2 = compare.getTerm2().toString();
+            if (!(compare.getTerm1() instanceof Variable) || !(compare.getTerm2() instanceof Variable)){
+                continue;
+            }
+            if ((variables.contains(variable1) && edge.contains(variable2))
+                    || (variables.contains(variable2) && edge.contains(variable1))){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * find another alive relation that contains all variables of the i-th relation
+     * @param edges variables of relations
+     * @param alive relations not removed yet
+     * @param i index of the checked relation
+     * @return index of the containing relation, or -1 if there is none
+     */
+    private static int findContainer(List<Set<String>> edges, List<Integer> alive, int i){
+        for (Integer j: alive){
+            if (j != i && edges.get(j).containsAll(edges.get(i))){
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * getter for the relations of this graph
+     * @return list of relations
+     */
+    public List<RelationalAtom> getAtoms(){
+        return atoms;
+    }
+
+    /**
+     * getter for the variables of each relation
+     * @return list of variable sets, in the same order as the relations
+     */
+    public List<Set<String>> getEdges(){
+        return edges;
+    }
+
+    /**
+     * A join tree of an acyclic query, relations are referred by their index in the query.
+     */
+    public static class JoinTree{
+        //parent of each relation, -1 for the root
+        private final int[] parent;
+        //relations in the order they are removed by GYO reduction, so every relation
+        //comes before its parent and the root is the last one
+        private final List<Integer> order;
+
+        JoinTree(int[] parent, List<Integer> order){
+            this.parent = parent;
+            this.order = order;
+        }
+
+        /**
+         * @param i index of a relation
+         * @return index of its parent, -1 for the root
+         */
+        public int getParent(int i){
+            return parent[i];
+        }
+
+        /**
+         * @return relations ordered from the leaves up to the root
+         */
+        public List<Integer> bottomUpOrder(){
+            return order;
+        }
+
+        /**
+         * @return relations ordered from the root down, every relation comes after its parent
+         */
+        public List<Integer> topDownOrder(){
+            List<Integer> result = new ArrayList<>();
+            result.add(order.get(order.size() - 1));
+            for (int k = 0; k < result.size(); k++){
+                for (int i = 0; i < parent.length; i++){
+                    if (parent[i] == result.get(k)){
+                        result.add(i);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
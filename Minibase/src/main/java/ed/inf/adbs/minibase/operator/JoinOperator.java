@@ -1,8 +1,10 @@
 package ed.inf.adbs.minibase.operator;
 
+import ed.inf.adbs.minibase.Utils;
 import ed.inf.adbs.minibase.base.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static ed.inf.adbs.minibase.operator.QueryBuilder.appearedVariableName;
@@ -20,31 +22,34 @@ import static ed.inf.adbs.minibase.operator.QueryBuilder.unappearedChar;
  * comparisons x=1,x=b,y=a. In joinEvaluation, it will check comparisons 1 by 1. For x=1, since both relations' original form have x, it will
  * check both relation to make sure both side's x's position's value =1. For x=b and y=a, these variables can directly find in current
  * relation's table, just compare their value. In this way, it can achieve restriction filtering and join on same variables.
+ * The variables of the comparisons are resolved to tuple positions once, when the joinEvaluation is built in the constructor.
  */
 public class JoinOperator extends Operator{
-    private final Operator leftChild;
-    private final Operator rightChild;
-    private final List<ComparisonAtom> comparisonAtom;
+    protected final Operator leftChild;
+    protected final Operator rightChild;
+    protected final List<ComparisonAtom> comparisonAtom;
     //left child's current output tuple
-    private Tuple leftPointer;
+    protected Tuple leftPointer;
     //right child's current output tuple
-    private Tuple rightPointer;
+    protected Tuple rightPointer;
     //left child's current variable table
-    private final List<String> leftVariables;
+    protected final List<String> leftVariables;
     //right child's current variable table
-    private List<String> rightVariables;
+    protected List<String> rightVariables;
     //left child's original variable table
-    private final List<String> rightOriginalVariables;
+    protected final List<String> rightOriginalVariables;
     //right child's original variable table
-    private final List<String> leftOriginalVariables;
+    protected final List<String> leftOriginalVariables;
     private Tuple outputTuple;
-    private String outputName;
+    protected String outputName;
+    //join conditions resolved to positions in left and right tuples
+    private JoinEvaluation joinEvaluation;
     //the last altered char, also used for variable renaming
     // in convertList() function
     private char lastChar;
 
     //used to show this join is valid.
-    private final boolean valid;
+    protected final boolean valid;
 
     public JoinOperator(Operator leftChild, Operator rightChild, List<ComparisonAtom> comparisonAtom) {
         //initialize variables
@@ -98,6 +103,7 @@ public class JoinOperator extends Operator{
             this.variableList = new ArrayList<>();
             this.variableList.addAll(leftVariables);
             this.variableList.addAll(rightVariables);
+            this.joinEvaluation = new JoinEvaluation(leftVariables,rightVariables,rightOriginalVariables,this.comparisonAtom);
         }
         else {
             this.valid = false;
@@ -116,12 +122,8 @@ public class JoinOperator extends Operator{
         }
         while (leftPointer!=null){
             //check by using joinEvaluation
-            JoinEvaluation checker = new JoinEvaluation(leftVariables,rightVariables,this.leftOriginalVariables,this.rightOriginalVariables,leftPointer,rightPointer,comparisonAtom);
-            boolean find = checker.evaluate();
-            //if you find a valid tuple, initialize output Tuple
-            if (find){
-                outputTuple = new Tuple(outputName,checker.outputTerms());
-            }
+            outputTuple = joinTuples(leftPointer,rightPointer);
+            boolean find = outputTuple != null;
             //check next tuple
             rightPointer = rightChild.getNextTuple();
             //if reach end of rightChild, resit rightChild and start check next left tuple
@@ -138,6 +140,40 @@ public class JoinOperator extends Operator{
         return null;
     }
 
+    /**
+     * check a pair of left and right tuples against the join conditions
+     * @param left tuple from left child
+     * @param right tuple from right child
+     * @return the joined output tuple, or null if this pair does not match
+     */
+    protected Tuple joinTuples(Tuple left, Tuple right){
+        List<Term> leftTerms = left.getTerms();
+        List<Term> rightTerms = right.getTerms();
+        if (!joinEvaluation.evaluate(leftTerms,rightTerms)){
+            return null;
+        }
+        List<Term> outputTerms = new ArrayList<>(leftTerms.size()+rightTerms.size());
+        outputTerms.addAll(leftTerms);
+        outputTerms.addAll(rightTerms);
+        return new Tuple(outputName,outputTerms);
+    }
+
+    /**
+     * read all remaining tuples of a child
+     * @param child the child operator
+     * @param first the child tuple that has already been read
+     * @return list of tuples
+     */
+    protected static List<Tuple> readAll(Operator child, Tuple first){
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple = first;
+        while (tuple != null){
+            tuples.add(tuple);
+            tuple = child.getNextTuple();
+        }
+        return tuples;
+    }
+
     /**
      * function used to change a variable in a relation to another name
      * @param variableList variable table
@@ -161,6 +197,28 @@ public class JoinOperator extends Operator{
         return variableList;
     }
 
+    /**
+     * get the child operators of this operator
+     * @return left child and right child
+     */
+    @Override
+    public List<Operator> getChildren(){
+        return Arrays.asList(leftChild, rightChild);
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the join algorithm and the join conditions, including the equalities of shared variables
+     */
+    @Override
+    public String describe(){
+        String name = getClass().getSimpleName().replaceAll("Operator$", "");
+        if (!valid){
+            return name + ", an input is empty";
+        }
+        return name + " on " + (comparisonAtom.isEmpty() ? "true (cross product)" : Utils.join(comparisonAtom, ", "));
+    }
+
     /**
      * reset to initial state
      */
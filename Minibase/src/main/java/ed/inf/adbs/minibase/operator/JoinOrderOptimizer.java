@@ -0,0 +1,437 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.Catalog;
+import ed.inf.adbs.minibase.TableStatistics;
+import ed.inf.adbs.minibase.base.*;
+
+import java.util.*;
+
+/**
+ * JoinOrderOptimizer chooses the join tree of the relations of a query.
+ * The size of each relation after its selections is estimated from the catalog statistics: the number
+ * of rows and the distinct values of each column. A join's output size is the product of its inputs'
+ * sizes times the selectivity of its conditions, 1 / max(distinct values) for each shared variable and
+ * each equality, and 1/3 for each inequality. The cost of a join depends on the operator queryBuilder
+ * would use: a hash join reads both inputs and builds a hash table on the right one, an inequality join
+ * sorts both inputs, and a nested loop join compares every pair. The cost of a plan is the sum of the
+ * costs of its joins and the sizes of their outputs.
+ * Like the Selinger optimizer, dynamic programming finds the cheapest plan for every connected subset
+ * of relations from the cheapest plans of its subsets, so 2 plans are only joined when they share a
+ * variable or a join condition, and a cross product is only used between connected components.
+ * A bushy plan splits a subset into any 2 connected subsets, so both inputs of a join can be joins,
+ * like the arms of a star query that are joined before they meet the centre. A left-deep plan only
+ * splits off a single relation as the right input. Above a number of relations, a greedy heuristic
+ * builds a left-deep plan instead: it starts from the smallest relation and repeatedly joins the
+ * connected relation that gives the cheapest plan.
+ * Relations that have already been read into memory, like the relations reduced by semi-joins,
+ * use their actual number of rows instead of the estimate.
+ */
+public class JoinOrderOptimizer {
+    //default max number of relations ordered by dynamic programming
+    public static final int DEFAULT_DP_LIMIT = 10;
+    //selectivity of a comparison that is not an equality
+    private static final double RANGE_SELECTIVITY = 1.0 / 3;
+    //the relations, whose terms are all variables
+    private final List<RelationalAtom> atoms;
+    //the comparisons between variables of different relations
+    private final List<ComparisonAtom> joinConditions;
+    //max number of relations ordered by dynamic programming
+    private final int dpLimit;
+    //whether both inputs of a join can be joins
+    private final boolean bushy;
+    //variables of each relation
+    private final List<Set<String>> variables;
+    //estimated rows of each relation after its selections, and distinct values of its variables
+    private final double[] rows;
+    private final List<Map<String,Double>> distinct;
+
+    /**
+     * constructor for join order optimizer, estimate the size of every relation
+     * @param atoms the relations, all terms should already be variables
+     * @param selections the comparisons that are checked on single relations
+     * @param joinConditions the comparisons that are checked by joins
+     * @param dpLimit max number of relations ordered by dynamic programming
+     * @param bushy whether both inputs of a join can be joins, otherwise the plan is left-deep
+     */
+    public JoinOrderOptimizer(List<RelationalAtom> atoms, List<ComparisonAtom> selections,
+                              List<ComparisonAtom> joinConditions, int dpLimit, boolean bushy){
+        this.atoms = atoms;
+        this.joinConditions = joinConditions;
+        this.dpLimit = dpLimit;
+        this.bushy = bushy;
+        this.variables = new ArrayList<>();
+        this.rows = new double[atoms.size()];
+        this.distinct = new ArrayList<>();
+        for (int i = 0; i < atoms.size(); i++){
+            variables.add(JoinGraph.variablesOf(atoms.get(i)));
+            estimateRelation(i, selections);
+        }
+    }
+
+    /**
+     * choose the join tree, the connected components of the relations are planned separately,
+     * and joined by cross products at the end, from the smallest estimated component to the largest
+     * @return the cheapest plan found
+     */
+    public Plan plan(){
+        List<Plan> plans = new ArrayList<>();
+        for (List<Integer> component: JoinGraph.components(variables, joinConditions)){
+            plans.add(component.size() <= dpLimit ? dynamicProgramming(component) : greedy(component));
+        }
+        plans.sort(Comparator.comparingDouble(plan -> plan.rows));
+        Plan plan = plans.get(0);
+        for (int i = 1; i < plans.size(); i++){
+            plan = join(plan, plans.get(i));
+        }
+        return plan;
+    }
+
+    /**
+     * replace the estimated rows of a relation by its actual number of rows, which is known once the
+     * relation has been read into memory, the distinct values of its variables can not be more than its rows
+     * @param index position of the relation
+     * @param relationRows actual number of rows
+     */
+    public void setRows(int index, double relationRows){
+        rows[index] = Math.max(1, relationRows);
+        for (Map.Entry<String,Double> entry: distinct.get(index).entrySet()){
+            entry.setValue(Math.min(entry.getValue(), rows[index]));
+        }
+    }
+
+    /**
+     * estimate the number of rows of joining some relations
+     * @param relations positions of the relations
+     * @return estimated rows after joining them in this order
+     */
+    public double estimateRows(List<Integer> relations){
+        Plan plan = single(relations.get(0));
+        for (int i = 1; i < relations.size(); i++){
+            plan = join(plan, single(relations.get(i)));
+        }
+        return plan.rows;
+    }
+
+    /**
+     * find the cheapest plan of connected relations by dynamic programming over connected subsets
+     * @param component positions of the relations, bit i of a subset's mask is the i-th of them
+     * @return the cheapest plan
+     */
+    private Plan dynamicProgramming(List<Integer> component){
+        int n = component.size();
+        Plan[] best = new Plan[1 << n];
+        for (int i = 0; i < n; i++){
+            best[1 << i] = single(component.get(i));
+        }
+        //every subset is split into 2 subsets, which have smaller masks and already have their best plans
+        for (int mask = 1; mask < (1 << n); mask++){
+            if (Integer.bitCount(mask) < 2){
+                continue;
+            }
+            for (int left = (mask - 1) & mask; left > 0; left = (left - 1) & mask){
+                int right = mask ^ left;
+                if (best[left] == null || best[right] == null || (!bushy && Integer.bitCount(right) > 1)
+                        || !isConnected(best[left], best[right])){
+                    continue;
+                }
+                Plan joined = join(best[left], best[right]);
+                if (best[mask] == null || joined.cost < best[mask].cost){
+                    best[mask] = joined;
+                }
+            }
+        }
+        return best[(1 << n) - 1];
+    }
+
+    /**
+     * build a plan of connected relations by starting from the smallest relation and joining
+     * the cheapest connected relation each time
+     * @param component positions of the relations
+     * @return the plan
+     */
+    private Plan greedy(List<Integer> component){
+        Plan plan = null;
+        for (Integer i: component){
+            if (plan == null || rows[i] < plan.rows){
+                plan = single(i);
+            }
+        }
+        while (plan.relations.size() < component.size()){
+            Plan next = null;
+            for (Integer i: component){
+                if (!plan.relations.contains(i) && isConnected(plan, single(i))){
+                    Plan joined = join(plan, single(i));
+                    if (next == null || joined.cost < next.cost){
+                        next = joined;
+                    }
+                }
+            }
+            plan = next;
+        }
+        return plan;
+    }
+
+    /**
+     * estimate the rows of a relation after its selections, and the distinct values of its variables
+     * @param index position of the relation
+     * @param selections the comparisons that are checked on single relations
+     */
+    private void estimateRelation(int index, List<ComparisonAtom> selections){
+        RelationalAtom atom = atoms.get(index);
+        TableStatistics statistics = Catalog.getStatistics(atom.getName());
+        double relationRows = statistics.getRowCount();
+        Map<String,Double> values = new HashMap<>();
+        List<Term> terms = atom.getTerms();
+        for (int column = 0; column < terms.size(); column++){
+            String variable = terms.get(column).toString();
+            double count = statistics.getDistinctCount(column);
+            Double known = values.get(variable);
+            if (known != null){
+                //a repeated variable keeps rows whose columns are equal
+                relationRows /= Math.max(known, count);
+                count = Math.min(known, count);
+            }
+            values.put(variable, count);
+        }
+        for (ComparisonAtom compare: selections){
+            Set<String> compared = variablesOf(compare);
+            if (compared.isEmpty() || !variables.get(index).containsAll(compared)){
+                continue;
+            }
+            String variable1 = compare.getTerm1().toString();
+            String variable2 = compare.getTerm2().toString();
+            double selectivity = RANGE_SELECTIVITY;
+            if (compared.size() == 1 && compare.getOp() == ComparisonOperator.EQ){
+                selectivity = 1 / values.get(compared.iterator().next());
+                values.put(compared.iterator().next(), 1.0);
+            }
+            else if (compared.size() == 1 && compare.getOp() == ComparisonOperator.NEQ){
+                selectivity = 1 - 1 / values.get(compared.iterator().next());
+            }
+            else if (compared.size() == 2 && compare.getOp() == ComparisonOperator.EQ){
+                selectivity = 1 / Math.max(values.get(variable1), values.get(variable2));
+            }
+            else if (compare.getOp() == ComparisonOperator.NEQ){
+                selectivity = 1;
+            }
+            relationRows *= selectivity;
+        }
+        relationRows = Math.max(1, relationRows);
+        for (Map.Entry<String,Double> entry: values.entrySet()){
+            entry.setValue(Math.min(entry.getValue(), relationRows));
+        }
+        rows[index] = relationRows;
+        distinct.add(values);
+    }
+
+    /**
+     * the plan of a single relation
+     * @param index position of the relation
+     * @return plan that only reads this relation
+     */
+    private Plan single(int index){
+        Plan plan = new Plan();
+        plan.relation = index;
+        plan.relations = Collections.singletonList(index);
+        plan.rows = rows[index];
+        plan.cost = rows[index];
+        plan.variables = new HashSet<>(variables.get(index));
+        plan.distinct = new HashMap<>(distinct.get(index));
+        return plan;
+    }
+
+    /**
+     * join 2 plans
+     * @param left the left input, the probe side of a hash join
+     * @param right the right input, the build side of a hash join
+     * @return the joined plan
+     */
+    private Plan join(Plan left, Plan right){
+        double selectivity = 1;
+        boolean equality = false;
+        boolean inequality = false;
+        for (String variable: right.variables){
+            if (left.variables.contains(variable)){
+                selectivity /= Math.max(left.distinct.get(variable), right.distinct.get(variable));
+                equality = true;
+            }
+        }
+        for (ComparisonAtom compare: joinConditions){
+            Set<String> compared = variablesOf(compare);
+            if (!isJoinedBy(compared, left.variables, right.variables)){
+                continue;
+            }
+            switch (compare.getOp()){
+                case EQ:
+                    selectivity /= Math.max(valuesOf(compare.getTerm1(), left, right), valuesOf(compare.getTerm2(), left, right));
+                    equality = true;
+                    break;
+                case NEQ:
+                    break;
+                default:
+                    selectivity *= RANGE_SELECTIVITY;
+                    inequality = true;
+                    break;
+            }
+        }
+        double output = Math.max(1, left.rows * right.rows * selectivity);
+        double joinCost;
+        if (equality){
+            //the hash table is built on the right input
+            joinCost = left.rows + 2 * right.rows;
+        }
+        else if (inequality){
+            joinCost = left.rows * log2(left.rows) + right.rows * log2(right.rows);
+        }
+        else {
+            joinCost = left.rows * right.rows;
+        }
+        Plan plan = new Plan();
+        plan.relation = -1;
+        plan.left = left;
+        plan.right = right;
+        plan.relations = new ArrayList<>(left.relations);
+        plan.relations.addAll(right.relations);
+        plan.rows = output;
+        plan.cost = left.cost + right.cost + joinCost + output;
+        plan.variables = new HashSet<>(left.variables);
+        plan.variables.addAll(right.variables);
+        plan.distinct = new HashMap<>(left.distinct);
+        for (Map.Entry<String,Double> entry: right.distinct.entrySet()){
+            plan.distinct.merge(entry.getKey(), entry.getValue(), Math::min);
+        }
+        for (Map.Entry<String,Double> entry: plan.distinct.entrySet()){
+            entry.setValue(Math.min(entry.getValue(), output));
+        }
+        return plan;
+    }
+
+    /**
+     * check if 2 plans share a variable or a join condition
+     * @param left the left plan
+     * @param right the right plan
+     * @return if they are connected
+     */
+    private boolean isConnected(Plan left, Plan right){
+        for (String variable: right.variables){
+            if (left.variables.contains(variable)){
+                return true;
+            }
+        }
+        for (ComparisonAtom compare: joinConditions){
+            if (isJoinedBy(variablesOf(compare), left.variables, right.variables)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * check if a comparison is checked by the join of 2 sides: all its variables are on
+     * one of the 2 sides, and it has a variable that is only on the right side and a variable on the left side
+     */
+    private static boolean isJoinedBy(Set<String> compared, Set<String> leftVariables, Set<String> rightVariables){
+        boolean left = false;
+        boolean rightOnly = false;
+        for (String variable: compared){
+            if (leftVariables.contains(variable)){
+                left = true;
+            }
+            else if (rightVariables.contains(variable)){
+                rightOnly = true;
+            }
+            else {
+                return false;
+            }
+        }
+        return left && rightOnly;
+    }
+
+    /**
+     * get the distinct values of a compared variable, from the left plan or from the right plan
+     */
+    private static double valuesOf(Term term, Plan left, Plan right){
+        Double values = left.distinct.get(term.toString());
+        if (values == null){
+            values = right.distinct.get(term.toString());
+        }
+        return values == null ? 1 : values;
+    }
+
+    /**
+     * get the variables of a comparison
+     */
+    private static Set<String> variablesOf(ComparisonAtom compare){
+        Set<String> result = new HashSet<>();
+        if (compare.getTerm1() instanceof Variable){
+            result.add(compare.getTerm1().toString());
+        }
+        if (compare.getTerm2() instanceof Variable){
+            result.add(compare.getTerm2().toString());
+        }
+        return result;
+    }
+
+    private static double log2(double value){
+        return Math.log(Math.max(2, value)) / Math.log(2);
+    }
+
+    /**
+     * a plan that joins some relations, either a single relation or a join of 2 plans
+     */
+    public static class Plan{
+        //position of the relation if this plan is a single relation, otherwise -1
+        private int relation;
+        //the inputs if this plan is a join
+        private Plan left;
+        private Plan right;
+        //positions of the joined relations
+        private List<Integer> relations;
+        //estimated output rows and cost
+        private double rows;
+        private double cost;
+        //variables of the joined relations and their estimated distinct values
+        private Set<String> variables;
+        private Map<String,Double> distinct;
+
+        /**
+         * check if this plan is a single relation
+         * @return if it is not a join
+         */
+        public boolean isRelation(){
+            return relation >= 0;
+        }
+
+        /**
+         * get the relation of a single relation plan
+         * @return position of the relation
+         */
+        public int getRelation(){
+            return relation;
+        }
+
+        /**
+         * get the left input of a join
+         * @return left plan, null if this plan is a single relation
+         */
+        public Plan getLeft(){
+            return left;
+        }
+
+        /**
+         * get the right input of a join
+         * @return right plan, null if this plan is a single relation
+         */
+        public Plan getRight(){
+            return right;
+        }
+
+        /**
+         * get the estimated number of output rows
+         * @return estimated rows
+         */
+        public double getRows(){
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.util.*;
+
+/**
+ * This class implements Leapfrog Triejoin, a worst-case optimal multiway join. Instead of joining
+ * 2 relations at a time, it joins all relations together one variable at a time. All variables get
+ * a global order, and every child's tuples are sorted by its variables in this order, so a sorted
+ * child works like a trie whose i-th level holds the values of its i-th variable. For the current
+ * variable, the tries of all relations that have this variable leapfrog over each other: the trie
+ * with the smallest value seeks to the largest value of the others, until all of them agree on a
+ * value, then the join goes one level deeper to the next variable. Because of this, cyclic queries
+ * like Q(x,y,z) :- E(x,y), E(y,z), E(z,x) never build the large intermediate result that a binary
+ * join plan does.
+ * The output tuple contains every distinct variable once, in the global variable order. Duplicate
+ * rows of a child are kept, so the output has the same multiplicity as a binary join plan, which
+ * matters for SUM.
+ */
+public class LeapfrogTriejoinOperator extends Operator{
+    //the child operators, one for each relation
+    private final List<Operator> children;
+    //the tries of the children, built on the first call of getNextTuple()
+    private List<TrieIterator> tries;
+    //for each variable, the tries that contain this variable
+    private List<List<TrieIterator>> levelTries;
+    //for each variable, index of the trie in levelTries that will move next
+    private int[] leapfrogPosition;
+    //for each variable, whether no more value can be found at this level
+    private boolean[] levelAtEnd;
+    //for each variable, the value that all its tries agree on
+    private Term[] levelKey;
+    //current depth, -1 means the join is finished
+    private int depth;
+    //the last output tuple and how many more times it should be returned
+    private Tuple lastOutput;
+    private long pendingCopies;
+
+    /**
+     * constructor for leapfrog triejoin
+     * @param children child operators, whose variable lists should only contain variables
+     */
+    public LeapfrogTriejoinOperator(List<Operator> children){
+        this.children = children;
+        this.variableList = variableOrder(children);
+    }
+
+    /**
+     * decide the global variable order, variables shared by more relations come first,
+     * so most of the pruning happens near the root of the tries.
+     * @param children child operators
+     * @return ordered list of all distinct variables
+     */
+    private static List<String> variableOrder(List<Operator> children){
+        final Map<String,Integer> count = new LinkedHashMap<>();
+        for (Operator child: children){
+            for (String variable: new LinkedHashSet<>(child.getVariableList())){
+                count.merge(variable, 1, Integer::sum);
+            }
+        }
+        List<String> order = new ArrayList<>(count.keySet());
+        //stable sort keeps appear order for variables with the same count
+        order.sort((a, b) -> count.get(b) - count.get(a));
+        return order;
+    }
+
+    /**
+     * read all children and build a sorted trie for each of them
+     */
+    private void buildTries(){
+        tries = new ArrayList<>();
+        levelTries = new ArrayList<>();
+        for (int i = 0; i < variableList.size(); i++){
+            levelTries.add(new ArrayList<>());
+        }
+        for (Operator child: children){
+            List<String> childVariables = child.getVariableList();
+            //the variables of this child in global order, and their first position in child's tuples
+            List<Integer> levels = new ArrayList<>();
+            for (int i = 0; i < variableList.size(); i++){
+                if (childVariables.contains(variableList.get(i))){
+                    levels.add(i);
+                }
+            }
+            int[] positions = new int[levels.size()];
+            for (int i = 0; i < levels.size(); i++){
+                positions[i] = childVariables.indexOf(variableList.get(levels.get(i)));
+            }
+            List<Term[]> rows = new ArrayList<>();
+            Tuple tuple = child.getNextTuple();
+            while (tuple != null){
+                List<Term> terms = tuple.getTerms();
+                if (repeatedVariablesMatch(childVariables, terms)){
+                    Term[] row = new Term[positions.length];
+                    for (int i = 0; i < positions.length; i++){
+                        row[i] = terms.get(positions[i]);
+                    }
+                    rows.add(row);
+                }
+                tuple = child.getNextTuple();
+            }
+            rows.sort(LeapfrogTriejoinOperator::compareRows);
+            TrieIterator trie = new TrieIterator(rows.toArray(new Term[0][]));
+            tries.add(trie);
+            for (Integer level: levels){
+                levelTries.get(level).add(trie);
+            }
+        }
+        leapfrogPosition = new int[variableList.size()];
+        levelAtEnd = new boolean[variableList.size()];
+        levelKey = new Term[variableList.size()];
+        pendingCopies = 0;
+        if (variableList.isEmpty()){
+            depth = -1;
+        }
+        else {
+            depth = 0;
+            openLevel(0);
+        }
+    }
+
+    /**
+     * check a variable that appears more than once in a relation, like R(x,x),
+     * has the same value in all its positions
+     * @param childVariables child's variable list
+     * @param terms child tuple's terms
+     * @return if all positions of the same variable have the same value
+     */
+    private static boolean repeatedVariablesMatch(List<String> childVariables, List<Term> terms){
+        for (int i = 0; i < childVariables.size(); i++){
+            int first = childVariables.indexOf(childVariables.get(i));
+            if (first != i && Tuple.compareTerms(terms.get(first), terms.get(i)) != 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * get next output tuple of the join
+     * @return next tuple, or null if all tuples have been returned
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (tries == null){
+            buildTries();
+        }
+        //return copies caused by duplicate rows first
+        if (pendingCopies > 0){
+            pendingCopies--;
+            return lastOutput;
+        }
+        int lastLevel = variableList.size() - 1;
+        while (depth >= 0){
+            if (levelAtEnd[depth]){
+                //no more value at this level, go back to the previous variable
+                closeLevel(depth);
+                depth--;
+                if (depth >= 0){
+                    leapfrogNext(depth);
+                }
+                continue;
+            }
+            if (depth < lastLevel){
+                depth++;
+                openLevel(depth);
+                continue;
+            }
+            //every variable has a value, build output tuple
+            List<Term> terms = new ArrayList<>();
+            for (int i = 0; i <= lastLevel; i++){
+                terms.add(levelKey[i]);
+            }
+            long copies = 1;
+            for (TrieIterator trie: tries){
+                copies *= trie.groupSize();
+            }
+            lastOutput = new Tuple("", terms);
+            pendingCopies = copies - 1;
+            leapfrogNext(depth);
+            return lastOutput;
+        }
+        return null;
+    }
+
+    /**
+     * open the tries of the variable at this level and find their first common value
+     * @param level level of the variable
+     */
+    private void openLevel(int level){
+        List<TrieIterator> iterators = levelTries.get(level);
+        for (TrieIterator trie: iterators){
+            trie.open();
+        }
+        for (TrieIterator trie: iterators){
+            if (trie.atEnd()){
+                levelAtEnd[level] = true;
+                return;
+            }
+        }
+        levelAtEnd[level] = false;
+        iterators.sort((a, b) -> Tuple.compareTerms(a.key(), b.key()));
+        leapfrogPosition[level] = 0;
+        leapfrogSearch(level);
+    }
+
+    /**
+     * go back to the parent level of the tries of the variable at this level
+     * @param level level of the variable
+     */
+    private void closeLevel(int level){
+        for (TrieIterator trie: levelTries.get(level)){
+            trie.up();
+        }
+    }
+
+    /**
+     * leapfrog until all tries at this level agree on a value or one of them reaches its end
+     * @param level level of the variable
+     */
+    private void leapfrogSearch(int level){
+        List<TrieIterator> iterators = levelTries.get(level);
+        int k = iterators.size();
+        int p = leapfrogPosition[level];
+        Term max = iterators.get((p + k - 1) % k).key();
+        while (true){
+            TrieIterator trie = iterators.get(p);
+            if (Tuple.compareTerms(trie.key(), max) == 0){
+                leapfrogPosition[level] = p;
+                levelKey[level] = max;
+                return;
+            }
+            trie.seek(max);
+            if (trie.atEnd()){
+                levelAtEnd[level] = true;
+                return;
+            }
+            max = trie.key();
+            p = (p + 1) % k;
+        }
+    }
+
+    /**
+     * move to the next common value of the variable at this level
+     * @param level level of the variable
+     */
+    private void leapfrogNext(int level){
+        List<TrieIterator> iterators = levelTries.get(level);
+        int p = leapfrogPosition[level];
+        TrieIterator trie = iterators.get(p);
+        trie.next();
+        if (trie.atEnd()){
+            levelAtEnd[level] = true;
+            return;
+        }
+        leapfrogPosition[level] = (p + 1) % iterators.size();
+        leapfrogSearch(level);
+    }
+
+    /**
+     * compare 2 sorted rows in lexicographic order
+     * @param a row a
+     * @param b row b
+     * @return compare result
+     */
+    private static int compareRows(Term[] a, Term[] b){
+        for (int i = 0; i < a.length; i++){
+            int result = Tuple.compareTerms(a[i], b[i]);
+            if (result != 0){
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * get the variables the output tuples are ordered by, the join finds the values of the
+     * variables in the global variable order, each in ascending order
+     * @return all variables in the global variable order
+     */
+    @Override
+    public List<String> getOrdering(){
+        return variableList;
+    }
+
+    /**
+     * get the child operators of this operator
+     * @return list of child operators
+     */
+    @Override
+    public List<Operator> getChildren(){
+        return children;
+    }
+
+    /**
+     * reset this operator to initial state
+     */
+    @Override
+    public void reset() {
+        for (Operator child: children){
+            child.reset();
+        }
+        tries = null;
+    }
+
+    /**
+     * A trie iterator over sorted rows. Level i of the trie is column i of the rows, and
+     * the children of a value are the rows that share the same prefix up to this value.
+     */
+    private static class TrieIterator{
+        //sorted rows
+        private final Term[][] rows;
+        //current level, -1 means root
+        private int level;
+        //for each level, current position and the end of the range of rows that share the parent prefix
+        private final int[] position;
+        private final int[] end;
+
+        TrieIterator(Term[][] rows){
+            this.rows = rows;
+            int width = rows.length == 0 ? 0 : rows[0].length;
+            this.position = new int[width + 1];
+            this.end = new int[width + 1];
+            this.level = -1;
+        }
+
+        /**
+         * go to the first value of next level under current value
+         */
+        void open(){
+            int from;
+            int to;
+            if (level < 0){
+                from = 0;
+                to = rows.length;
+            }
+            else {
+                from = position[level];
+                to = upperBound(level, from, end[level], rows[from][level]);
+            }
+            level++;
+            position[level] = from;
+            end[level] = to;
+        }
+
+        /**
+         * go back to parent level
+         */
+        void up(){
+            level--;
+        }
+
+        /**
+         * @return if no value left at current level
+         */
+        boolean atEnd(){
+            return position[level] >= end[level];
+        }
+
+        /**
+         * @return current value at current level
+         */
+        Term key(){
+            return rows[position[level]][level];
+        }
+
+        /**
+         * move to the next different value at current level
+         */
+        void next(){
+            position[level] = upperBound(level, position[level], end[level], key());
+        }
+
+        /**
+         * move to the first value at current level that is not less than target
+         * @param target the value to seek
+         */
+        void seek(Term target){
+            int low = position[level];
+            int high = end[level];
+            while (low < high){
+                int middle = (low + high) >>> 1;
+                if (Tuple.compareTerms(rows[middle][level], target) < 0){
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            position[level] = low;
+        }
+
+        /**
+         * @return number of rows that equal the current row at every level
+         */
+        int groupSize(){
+            int deepest = rows[0].length - 1;
+            int from = position[deepest];
+            return upperBound(deepest, from, end[deepest], rows[from][deepest]) - from;
+        }
+
+        /**
+         * find the first row in [from, to) whose value at this column is greater than value
+         */
+        private int upperBound(int column, int from, int to, Term value){
+            int low = from;
+            int high = to;
+            while (low < high){
+                int middle = (low + high) >>> 1;
+                if (Tuple.compareTerms(rows[middle][column], value) <= 0){
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * MaterializeOperator caches its child's output the first time the child is read, so a reset()
+ * does not run the child again: later passes return the cached tuples. This is used for the inner
+ * child of a nested loop join, which is reset once for every block of outer tuples.
+ * Tuples are cached in a compact form: every value is an int in one big array, integers are stored
+ * as they are and strings are stored as their code in a dictionary. If the array and the dictionary
+ * grow beyond the memory budget, the cache is moved to a temporary file with the strings written
+ * in place of their codes, so the dictionary is dropped, and later passes read this file instead.
+ * Each pass closes the file when it ends, and close() deletes it.
+ */
+public class MaterializeOperator extends Operator{
+    //default memory budget of the cache in bytes
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    //the child operator
+    private final Operator child;
+    //max bytes of cached values kept in memory
+    private final long memoryBudget;
+    //name of cached tuples
+    private String relationName;
+    //number of values in each tuple, and whether each position holds integers
+    private int width;
+    private boolean[] integerColumn;
+    //dictionary for values that are not integers, and its estimated bytes
+    private final List<Term> dictionary;
+    private final Map<String,Integer> dictionaryCodes;
+    private long dictionaryBytes;
+    //cached values in memory, row after row
+    private int[] values;
+    private int valueCount;
+    //number of cached tuples
+    private int rowCount;
+    //temporary file of the cache after it is spilled
+    private File spillFile;
+    private DataOutputStream spillOutput;
+    private DataInputStream spillInput;
+    //whether the child has been read to the end
+    private boolean complete;
+    //position of the next tuple when returning cached tuples
+    private int readRow;
+
+    /**
+     * constructor for materialize operator
+     * @param child the child operator
+     * @param memoryBudget max bytes of cached values kept in memory before spilling to a temporary file
+     */
+    public MaterializeOperator(Operator child, long memoryBudget){
+        this.child = child;
+        this.memoryBudget = memoryBudget;
+        this.variableList = child.getVariableList();
+        this.width = -1;
+        this.dictionary = new ArrayList<>();
+        this.dictionaryCodes = new HashMap<>();
+        this.values = new int[64];
+    }
+
+    /**
+     * get next tuple, from the child during the first pass and from the cache after that
+     * @return next tuple, or null if no tuple left
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!complete){
+            Tuple tuple = child.getNextTuple();
+            if (tuple == null){
+                finishFirstPass();
+                readRow = rowCount;
+                return null;
+            }
+            store(tuple);
+            return tuple;
+        }
+        if (readRow >= rowCount){
+            closeInput();
+            return null;
+        }
+        readRow++;
+        try {
+            List<Term> terms = new ArrayList<>(width);
+            for (int i = 0; i < width; i++){
+                if (spillInput != null){
+                    terms.add(integerColumn[i] ? new IntegerConstant(spillInput.readInt()) : new StringConstant(spillInput.readUTF()));
+                }
+                else {
+                    int value = values[(readRow - 1) * width + i];
+                    terms.add(integerColumn[i] ? new IntegerConstant(value) : dictionary.get(value));
+                }
+            }
+            return new Tuple(relationName, terms);
+        }
+        catch (IOException e){
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * add a tuple to the cache
+     * @param tuple the tuple
+     */
+    private void store(Tuple tuple){
+        List<Term> terms = tuple.getTerms();
+        if (width < 0){
+            relationName = tuple.getRelationName();
+            width = terms.size();
+            integerColumn = new boolean[width];
+            for (int i = 0; i < width; i++){
+                integerColumn[i] = terms.get(i) instanceof IntegerConstant;
+            }
+        }
+        try {
+            if (spillOutput != null){
+                for (int i = 0; i < width; i++){
+                    write(i, terms.get(i));
+                }
+                rowCount++;
+                return;
+            }
+            for (int i = 0; i < width; i++){
+                int value = encode(i, terms.get(i));
+                if (valueCount == values.length){
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                values[valueCount++] = value;
+            }
+            rowCount++;
+            if ((long) valueCount * Integer.BYTES + dictionaryBytes > memoryBudget){
+                spill();
+            }
+        }
+        catch (IOException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * encode a value as an int
+     * @param column position of the value
+     * @param term the value
+     * @return the integer itself, or its code in the dictionary
+     */
+    private int encode(int column, Term term){
+        check(column, term);
+        if (integerColumn[column]){
+            return ((IntegerConstant) term).getValue();
+        }
+        String key = ((StringConstant) term).getValue();
+        Integer code = dictionaryCodes.get(key);
+        if (code == null){
+            code = dictionary.size();
+            dictionary.add(term);
+            dictionaryCodes.put(key, code);
+            //the string, and its entries in the dictionary list and map
+            dictionaryBytes += 112 + 2L * key.length();
+        }
+        return code;
+    }
+
+    /**
+     * check that a value has the type of its column, integers or strings
+     * @param column position of the value
+     * @param term the value
+     */
+    private void check(int column, Term term){
+        if (integerColumn[column] ? !(term instanceof IntegerConstant) : !(term instanceof StringConstant)){
+            throw new IllegalStateException("Column " + column + " of " + relationName + " mixes integers with other values");
+        }
+    }
+
+    /**
+     * write a value to the temporary file, an integer as it is and a string in place of its code
+     * @param column position of the value
+     * @param term the value
+     */
+    private void write(int column, Term term) throws IOException {
+        check(column, term);
+        if (integerColumn[column]){
+            spillOutput.writeInt(((IntegerConstant) term).getValue());
+        }
+        else {
+            spillOutput.writeUTF(((StringConstant) term).getValue());
+        }
+    }
+
+    /**
+     * move the cached values to a temporary file, all later values are written to this file,
+     * and the dictionary is no longer needed
+     */
+    private void spill() throws IOException {
+        spillFile = File.createTempFile("minibase-materialize", ".bin");
+        spillFile.deleteOnExit();
+        spillOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+        for (int i = 0; i < valueCount; i++){
+            if (integerColumn[i % width]){
+                spillOutput.writeInt(values[i]);
+            }
+            else {
+                spillOutput.writeUTF(((StringConstant) dictionary.get(values[i])).getValue());
+            }
+        }
+        values = null;
+        valueCount = 0;
+        dictionary.clear();
+        dictionaryCodes.clear();
+        dictionaryBytes = 0;
+    }
+
+    /**
+     * close the temporary file read by the current pass
+     */
+    private void closeInput(){
+        if (spillInput != null){
+            try {
+                spillInput.close();
+            }
+            catch (IOException e){
+                e.printStackTrace();
+            }
+            spillInput = null;
+        }
+    }
+
+    /**
+     * the child has been read to the end, the cache is complete
+     */
+    private void finishFirstPass(){
+        complete = true;
+        if (spillOutput != null){
+            try {
+                spillOutput.close();
+            }
+            catch (IOException e){
+                e.printStackTrace();
+            }
+            spillOutput = null;
+        }
+    }
+
+    /**
+     * get the variables the output tuples are ordered by, cached tuples are returned in the child's order
+     * @return the child's ordering variables
+     */
+    @Override
+    public List<String> getOrdering(){
+        return child.getOrdering();
+    }
+
+    /**
+     * get the child operators of this operator
+     * @return list of child operators
+     */
+    @Override
+    public List<Operator> getChildren(){
+        return Collections.singletonList(child);
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the number of cached tuples and whether they are spilled to a temporary file
+     */
+    @Override
+    public String describe(){
+        return "Materialize " + variableList + ", " + rowCount + " tuples cached" + (spillFile != null ? " on disk" : " in memory");
+    }
+
+    /**
+     * reset this operator to initial state, the child is not reset, the next pass
+     * returns cached tuples instead
+     */
+    @Override
+    public void reset() {
+        //finish reading the child so the cache has every tuple
+        while (!complete){
+            getNextTuple();
+        }
+        readRow = 0;
+        closeInput();
+        if (spillFile != null){
+            try {
+                spillInput = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+            }
+            catch (IOException e){
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * close the temporary file and delete it, also if the last pass was not read to the end
+     */
+    @Override
+    public void close() {
+        closeInput();
+        finishFirstPass();
+        if (spillFile != null){
+            spillFile.delete();
+        }
+        super.close();
+    }
+}
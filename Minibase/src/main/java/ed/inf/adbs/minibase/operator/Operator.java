@@ -1,5 +1,6 @@
 package ed.inf.adbs.minibase.operator;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -36,6 +37,41 @@ public abstract  class Operator {
         }
     }
 
+    /**
+     * get the child operators of this operator, used to walk through the query plan
+     * @return list of child operators, empty for operators that read data directly
+     */
+    public List<Operator> getChildren(){
+        return Collections.emptyList();
+    }
+
+    /**
+     * get the variables the output tuples are ordered by, tuples that have the same values of
+     * the first k of these variables are next to each other for every k
+     * @return the ordering variables, empty if the output has no known order
+     */
+    public List<String> getOrdering(){
+        return Collections.emptyList();
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the operator's name and what it does, without its children
+     */
+    public String describe(){
+        return getClass().getSimpleName().replaceAll("Operator$", "") + " " + getVariableList();
+    }
+
+    /**
+     * release the resources this operator and its children hold, like temporary files,
+     * called after the last tuple is read, the operator is not read again after it is closed
+     */
+    public void close(){
+        for (Operator child: getChildren()){
+            child.close();
+        }
+    }
+
     /**
      * getter for relation's variable list
      * @return the relation's variable list
@@ -0,0 +1,95 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.util.*;
+
+/**
+ * OrderedSumOperator computes the same aggregates as sumOperator when the child's tuples are ordered
+ * by the head variables, so all tuples of a group are next to each other. It keeps only the state of the
+ * current group: when a tuple of another group arrives, the current group is complete and is returned
+ * at once, and the new group becomes the current group. It needs no hash map and returns the first group
+ * before the child is read to the end.
+ */
+public class OrderedSumOperator extends SumOperator{
+    //values of head variables and state of the current group, null if there is no current group
+    private List<Term> currentGroup;
+    private long[] currentState;
+    //whether the child has no tuple left
+    private boolean finished;
+
+    /**
+     * constructor for ordered sum operator
+     * @param child the child operator, ordered by the head variables
+     * @param head the head query
+     */
+    public OrderedSumOperator(Operator child, Head head){
+        super(child, head);
+    }
+
+    /**
+     * check if the child's tuples of each group are next to each other: the head variables
+     * must be the first variables of the child's ordering, in any order
+     * @param child the child operator
+     * @param head the head query
+     * @return if the child can be aggregated group by group
+     */
+    public static boolean isGrouped(Operator child, Head head){
+        Set<String> groupVariables = new HashSet<>();
+        for (Variable variable: head.getVariables()){
+            groupVariables.add(variable.getName());
+        }
+        List<String> ordering = child.getOrdering();
+        if (ordering.size() < groupVariables.size()){
+            return false;
+        }
+        return new HashSet<>(ordering.subList(0, groupVariables.size())).equals(groupVariables);
+    }
+
+    /**
+     * Get next tuple output
+     * @return the next complete group with its aggregates, or null if all groups are returned
+     */
+    @Override
+    public Tuple getNextTuple() {
+        while (!finished){
+            Tuple childNextTuple = child.getNextTuple();
+            if (childNextTuple == null){
+                finished = true;
+                break;
+            }
+            List<Term> tupleTerms = childNextTuple.getTerms();
+            List<Term> group = projection.apply(tupleTerms);
+            if (currentGroup == null){
+                currentGroup = group;
+                currentState = newState();
+            }
+            else if (!currentGroup.equals(group)){
+                Tuple output = outputTuple(currentGroup, currentState);
+                currentGroup = group;
+                currentState = newState();
+                update(currentState, tupleTerms);
+                return output;
+            }
+            update(currentState, tupleTerms);
+        }
+        if (currentGroup == null){
+            return null;
+        }
+        Tuple output = outputTuple(currentGroup, currentState);
+        currentGroup = null;
+        currentState = null;
+        return output;
+    }
+
+    /**
+     * reset this operator to initial state
+     */
+    @Override
+    public void reset() {
+        child.reset();
+        currentGroup = null;
+        currentState = null;
+        finished = false;
+    }
+}
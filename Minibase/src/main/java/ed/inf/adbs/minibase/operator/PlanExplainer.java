@@ -0,0 +1,83 @@
+package ed.inf.adbs.minibase.operator;
+
+import java.util.Map;
+
+/**
+ * PlanExplainer prints a query plan as a tree, one operator per line and children indented under their
+ * parent. Each line describes the operator: the relation of a scan, the restrictions of a selection,
+ * the algorithm and conditions of a join, the output of a projection or an aggregation. If the planner
+ * estimated the number of rows of an operator, the estimate is printed. In analyze mode, every operator
+ * is wrapped by a profilingOperator, and its actual rows, runs, time and allocated bytes are printed too.
+ */
+public class PlanExplainer {
+    //estimated rows of the operators
+    private final Map<Operator,Double> estimatedRows;
+    //whether the measurements of profiling operators are printed
+    private final boolean analyze;
+
+    /**
+     * constructor for plan explainer
+     * @param estimatedRows estimated rows of the operators, from queryBuilder
+     * @param analyze whether the plan has been run and its measurements are printed
+     */
+    public PlanExplainer(Map<Operator,Double> estimatedRows, boolean analyze){
+        this.estimatedRows = estimatedRows;
+        this.analyze = analyze;
+    }
+
+    /**
+     * print a query plan
+     * @param root the root operator
+     * @return the plan, one operator per line
+     */
+    public String explain(Operator root){
+        StringBuilder builder = new StringBuilder();
+        explain(root, 0, builder);
+        return builder.toString();
+    }
+
+    /**
+     * print an operator and its children
+     * @param operator the operator
+     * @param depth depth of the operator in the plan
+     * @param builder the output
+     */
+    private void explain(Operator operator, int depth, StringBuilder builder){
+        Operator measured = ProfilingOperator.unwrap(operator);
+        for (int i = 0; i < depth; i++){
+            builder.append("  ");
+        }
+        builder.append(depth == 0 ? "" : "-> ").append(measured.describe());
+        Double estimate = estimatedRows.get(operator);
+        if (estimate == null){
+            estimate = estimatedRows.get(measured);
+        }
+        if (estimate != null){
+            builder.append(String.format(" (estimated rows %.0f)", estimate));
+        }
+        if (analyze && operator instanceof ProfilingOperator){
+            ProfilingOperator profile = (ProfilingOperator) operator;
+            builder.append(String.format(" (actual rows %d, loops %d, time %.3f ms, allocated %s)",
+                    profile.getRows(), profile.getLoops(), profile.getNanos() / 1e6, bytes(profile.getAllocatedBytes())));
+        }
+        builder.append("\n");
+        for (Operator child: measured.getChildren()){
+            explain(child, depth + 1, builder);
+        }
+    }
+
+    /**
+     * format a number of bytes
+     * @param bytes number of bytes
+     * @return bytes in B, KB or MB
+     */
+    private static String bytes(long bytes){
+        if (bytes < 1024){
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024){
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+}
@@ -0,0 +1,278 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.util.*;
+
+/**
+ * PredicateInference derives the comparisons implied by the comparisons of a query.
+ * Variables compared by "=" are put in the same equivalence class, and every comparison
+ * between a variable and a constant holds for all variables of its class. For example,
+ * with x = u and x = 1 it derives u = 1, and with x = y and y > 5 it derives x > 5, so these
+ * restrictions can be checked by the selection of every relation that has one of these variables.
+ * It also checks if the comparisons can hold at all: comparisons between constants are evaluated,
+ * the type of each class is checked against the constants it is compared with, and the constants
+ * compared with each class must leave a non-empty range of values.
+ */
+public class PredicateInference {
+    //the comparisons of the query
+    private final List<ComparisonAtom> comparisons;
+    //parent of each variable in the union-find of equivalence classes
+    private final Map<String,String> parent;
+
+    /**
+     * constructor for predicate inference, build the equivalence classes of variables
+     * @param comparisons the comparisons of the query
+     */
+    public PredicateInference(List<ComparisonAtom> comparisons){
+        this.comparisons = comparisons;
+        this.parent = new LinkedHashMap<>();
+        for (ComparisonAtom compare: comparisons){
+            if (compare.getTerm1() instanceof Variable){
+                find(compare.getTerm1().toString());
+            }
+            if (compare.getTerm2() instanceof Variable){
+                find(compare.getTerm2().toString());
+            }
+            if (compare.getOp() == ComparisonOperator.EQ && compare.getTerm1() instanceof Variable && compare.getTerm2() instanceof Variable){
+                union(compare.getTerm1().toString(), compare.getTerm2().toString());
+            }
+        }
+    }
+
+    /**
+     * derive the comparisons between a variable and a constant that are implied but not written in the query
+     * @return list of new comparisons, in the form "variable op constant"
+     */
+    public List<ComparisonAtom> infer(){
+        //written comparisons, with constants on the right side
+        List<ComparisonAtom> constantComparisons = constantComparisons();
+        Set<String> known = new HashSet<>();
+        for (ComparisonAtom compare: constantComparisons){
+            known.add(compare.toString());
+        }
+        List<ComparisonAtom> inferred = new ArrayList<>();
+        for (ComparisonAtom compare: constantComparisons){
+            String root = find(compare.getTerm1().toString());
+            for (String variable: parent.keySet()){
+                if (!find(variable).equals(root)){
+                    continue;
+                }
+                ComparisonAtom candidate = new ComparisonAtom(new Variable(variable), compare.getTerm2(), compare.getOp());
+                if (known.add(candidate.toString())){
+                    inferred.add(candidate);
+                }
+            }
+        }
+        return inferred;
+    }
+
+    /**
+     * check if the comparisons can all hold for some values of the variables
+     * @param variableTypes the schema types, "int" or "string", of the columns each variable appears in
+     * @return false if the comparisons contradict each other, so the query output is empty
+     */
+    public boolean isSatisfiable(Map<String,List<String>> variableTypes){
+        //the type of each class, all columns of its variables must have the same type to be equal
+        Map<String,String> classTypes = new HashMap<>();
+        for (Map.Entry<String,List<String>> entry: variableTypes.entrySet()){
+            for (String columnType: entry.getValue()){
+                String type = classTypes.putIfAbsent(find(entry.getKey()), columnType);
+                if (type != null && !type.equals(columnType)){
+                    return false;
+                }
+            }
+        }
+        for (ComparisonAtom compare: comparisons){
+            Term term1 = compare.getTerm1();
+            Term term2 = compare.getTerm2();
+            if (term1 instanceof Constant && term2 instanceof Constant){
+                if (!TupleCompiler.compareTerms(compare.getOp(), term1, term2)){
+                    return false;
+                }
+            }
+            else if (term1 instanceof Variable && term2 instanceof Variable){
+                String class1 = find(term1.toString());
+                String class2 = find(term2.toString());
+                String type1 = classTypes.get(class1);
+                String type2 = classTypes.get(class2);
+                //values of different types never satisfy a comparison
+                if (type1 != null && type2 != null && !type1.equals(type2)){
+                    return false;
+                }
+                //2 variables of the same class are equal
+                ComparisonOperator op = compare.getOp();
+                if (class1.equals(class2) && (op == ComparisonOperator.NEQ || op == ComparisonOperator.LT || op == ComparisonOperator.GT)){
+                    return false;
+                }
+            }
+        }
+        Map<String,Range> ranges = new HashMap<>();
+        for (ComparisonAtom compare: constantComparisons()){
+            String root = find(compare.getTerm1().toString());
+            String type = classTypes.get(root);
+            Term constant = compare.getTerm2();
+            if (type != null && !type.equals(constant instanceof IntegerConstant ? "int" : "string")){
+                return false;
+            }
+            ranges.computeIfAbsent(root, k -> new Range()).add(compare.getOp(), constant);
+        }
+        for (Range range: ranges.values()){
+            if (range.isEmpty()){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * get the comparisons between a variable and a constant, with the variable on the left side
+     * @return list of comparisons in the form "variable op constant"
+     */
+    public List<ComparisonAtom> constantComparisons(){
+        List<ComparisonAtom> result = new ArrayList<>();
+        for (ComparisonAtom compare: comparisons){
+            Term term1 = compare.getTerm1();
+            Term term2 = compare.getTerm2();
+            if (term1 instanceof Variable && term2 instanceof Constant){
+                result.add(compare);
+            }
+            else if (term1 instanceof Constant && term2 instanceof Variable){
+                result.add(new ComparisonAtom(term2, term1, TupleCompiler.flip(compare.getOp())));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * find the representative of a variable's equivalence class
+     * @param variable the variable
+     * @return the representative variable
+     */
+    public String find(String variable){
+        String root = parent.get(variable);
+        if (root == null){
+            parent.put(variable, variable);
+            return variable;
+        }
+        if (!root.equals(variable)){
+            root = find(root);
+            parent.put(variable, root);
+        }
+        return root;
+    }
+
+    /**
+     * put 2 variables in the same equivalence class
+     */
+    private void union(String variable1, String variable2){
+        String root1 = find(variable1);
+        String root2 = find(variable2);
+        if (!root1.equals(root2)){
+            parent.put(root2, root1);
+        }
+    }
+
+    /**
+     * the values allowed for an equivalence class by its comparisons with constants
+     */
+    private static class Range{
+        //lower and upper bound, null if there is none, and whether they are included
+        private Term lower;
+        private boolean lowerIncluded;
+        private Term upper;
+        private boolean upperIncluded;
+        //values the class must be equal to, and values it must not be equal to
+        private final List<Term> equal = new ArrayList<>();
+        private final List<Term> notEqual = new ArrayList<>();
+
+        /**
+         * add a restriction "class op constant"
+         * @param op compare operator
+         * @param constant the constant
+         */
+        void add(ComparisonOperator op, Term constant){
+            switch (op){
+                case EQ:
+                    equal.add(constant);
+                    break;
+                case NEQ:
+                    notEqual.add(constant);
+                    break;
+                case GT:
+                case GEQ:
+                    if (lower == null || Tuple.compareTerms(constant, lower) > 0
+                            || (Tuple.compareTerms(constant, lower) == 0 && op == ComparisonOperator.GT)){
+                        lower = constant;
+                        lowerIncluded = op == ComparisonOperator.GEQ;
+                    }
+                    break;
+                default:
+                    if (upper == null || Tuple.compareTerms(constant, upper) < 0
+                            || (Tuple.compareTerms(constant, upper) == 0 && op == ComparisonOperator.LT)){
+                        upper = constant;
+                        upperIncluded = op == ComparisonOperator.LEQ;
+                    }
+                    break;
+            }
+        }
+
+        /**
+         * check if no value satisfies all restrictions
+         * @return if the range is empty
+         */
+        boolean isEmpty(){
+            //integer bounds that are not included become the next integer that is included
+            if (lower instanceof IntegerConstant && !lowerIncluded && ((IntegerConstant) lower).getValue() < Integer.MAX_VALUE){
+                lower = new IntegerConstant(((IntegerConstant) lower).getValue() + 1);
+                lowerIncluded = true;
+            }
+            if (upper instanceof IntegerConstant && !upperIncluded && ((IntegerConstant) upper).getValue() > Integer.MIN_VALUE){
+                upper = new IntegerConstant(((IntegerConstant) upper).getValue() - 1);
+                upperIncluded = true;
+            }
+            for (Term value: equal){
+                if (!TupleCompiler.compareTerms(ComparisonOperator.EQ, value, equal.get(0)) || !contains(value)){
+                    return true;
+                }
+            }
+            if (lower != null && upper != null){
+                int result = Tuple.compareTerms(lower, upper);
+                if (result > 0 || (result == 0 && !(lowerIncluded && upperIncluded))){
+                    return true;
+                }
+                //a range of a single value
+                if (result == 0 && !contains(lower)){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * check if a value is inside the bounds and is not excluded
+         * @param value the value
+         * @return if the value is allowed
+         */
+        private boolean contains(Term value){
+            if (lower != null){
+                int result = Tuple.compareTerms(value, lower);
+                if (result < 0 || (result == 0 && !lowerIncluded)){
+                    return false;
+                }
+            }
+            if (upper != null){
+                int result = Tuple.compareTerms(value, upper);
+                if (result > 0 || (result == 0 && !upperIncluded)){
+                    return false;
+                }
+            }
+            for (Term excluded: notEqual){
+                if (TupleCompiler.compareTerms(ComparisonOperator.EQ, value, excluded)){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ed.inf.adbs.minibase.operator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ProfilingOperator wraps an operator of an analyzed query plan and measures it: the number of tuples
+ * it returns, the number of times it is run (1 plus the number of resets), the time spent in its
+ * getNextTuple() and reset(), and the bytes allocated by the calling thread meanwhile. Time and bytes
+ * include the operator's children, like the actual time of EXPLAIN ANALYZE in other databases, and the
+ * bytes allocated by worker threads, like those of a parallel hash join, are not counted.
+ * It passes everything else through, it shares the child's variable list, so joins that rename the
+ * variables of their right child rename the child's variables as well.
+ */
+public class ProfilingOperator extends Operator {
+    //the measured operator
+    private final Operator child;
+    //thread bean that reports allocated bytes, null if the JVM does not support it
+    private final com.sun.management.ThreadMXBean threadBean;
+    //number of returned tuples, number of runs, time spent and bytes allocated
+    private long rows;
+    private long loops;
+    private long nanos;
+    private long allocatedBytes;
+
+    /**
+     * constructor for profiling operator
+     * @param child the measured operator
+     */
+    public ProfilingOperator(Operator child){
+        this.child = child;
+        this.variableList = child.getVariableList();
+        this.loops = 1;
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()){
+            this.threadBean = (com.sun.management.ThreadMXBean) bean;
+        }
+        else {
+            this.threadBean = null;
+        }
+    }
+
+    /**
+     * get the operator under a profiling operator
+     * @param operator an operator
+     * @return the measured operator if it is a profiling operator, otherwise the operator itself
+     */
+    public static Operator unwrap(Operator operator){
+        return operator instanceof ProfilingOperator ? ((ProfilingOperator) operator).child : operator;
+    }
+
+    /**
+     * Get next tuple of the child, and measure the call
+     * @return the child's next tuple
+     */
+    @Override
+    public Tuple getNextTuple() {
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        Tuple tuple = child.getNextTuple();
+        nanos += System.nanoTime() - start;
+        allocatedBytes += allocatedBytes() - bytes;
+        if (tuple != null){
+            rows++;
+        }
+        return tuple;
+    }
+
+    /**
+     * reset the child, and count a new run
+     */
+    @Override
+    public void reset() {
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        child.reset();
+        nanos += System.nanoTime() - start;
+        allocatedBytes += allocatedBytes() - bytes;
+        loops++;
+    }
+
+    /**
+     * get the bytes allocated by this thread so far
+     * @return allocated bytes, 0 if they are not reported
+     */
+    private long allocatedBytes(){
+        return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * get the measured operator
+     * @return the child operator
+     */
+    public Operator getChild(){
+        return child;
+    }
+
+    /**
+     * @return number of tuples returned
+     */
+    public long getRows(){
+        return rows;
+    }
+
+    /**
+     * @return number of runs, 1 plus the number of resets
+     */
+    public long getLoops(){
+        return loops;
+    }
+
+    /**
+     * @return nanoseconds spent in this operator and its children
+     */
+    public long getNanos(){
+        return nanos;
+    }
+
+    /**
+     * @return bytes allocated by this operator and its children on the calling thread
+     */
+    public long getAllocatedBytes(){
+        return allocatedBytes;
+    }
+
+    /**
+     * get the variables the output tuples are ordered by
+     * @return the child's ordering variables
+     */
+    @Override
+    public List<String> getOrdering(){
+        return child.getOrdering();
+    }
+
+    /**
+     * get the child operators of this operator
+     * @return list of child operators
+     */
+    @Override
+    public List<Operator> getChildren(){
+        return Collections.singletonList(child);
+    }
+
+    /**
+     * getter for the child's variable list
+     * @return the child's variable list
+     */
+    @Override
+    public List<String> getVariableList(){
+        return child.getVariableList();
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the child's description
+     */
+    @Override
+    public String describe(){
+        return child.describe();
+    }
+}
@@ -3,13 +3,16 @@ package ed.inf.adbs.minibase.operator;
 import ed.inf.adbs.minibase.base.*;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * This class implements project operator that will produce unique tuple
- * that only contains head variables
+ * that only contains head variables.
+ * Appeared tuples are kept as their lists of terms in a hash set, constants are compared by value,
+ * so checking if a tuple is new takes constant time and does not build its string.
+ * The set is kept by a spillingDistinct within a memory budget, tuples that do not fit are written to
+ * temporary files and the new ones among them are output after the child has no tuple left.
  */
 public class ProjectOperator extends Operator{
     //its child operator
@@ -17,7 +20,11 @@ public class ProjectOperator extends Operator{
     //head name, used for output tuple's name
     private final String headName;
     //buffer for appeared tuples, used for keep output unique
-    private final List<String> usedTuple;
+    private final SpillingDistinct usedTuple;
+    //whether the child has no tuple left, then the spilled tuples are output
+    private boolean childFinished;
+    //the compiled projection from child tuples to output tuples
+    private final TupleCompiler.Projection projection;
 
     /**
      * constructor for project operator, and initialize essential data
@@ -25,15 +32,26 @@ public class ProjectOperator extends Operator{
      * @param head head of query
      */
     public ProjectOperator(Operator child, Head head){
+        this(child, head, SpillingDistinct.DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * constructor for project operator with a memory budget for appeared tuples
+     * @param child child operator
+     * @param head head of query
+     * @param memoryBudget max bytes of appeared tuples kept in memory before spilling to temporary files
+     */
+    public ProjectOperator(Operator child, Head head, long memoryBudget){
         this.child = child;
         List<Variable> headVariable = head.getVariables();
         this.headName = head.getName();
         this.variableList = new ArrayList<>();
-        this.usedTuple = new ArrayList<>();
+        this.usedTuple = new SpillingDistinct(memoryBudget);
         //set variable position table to head variables' order
         for (Variable variable : headVariable){
             this.variableList.add(variable.getName());
         }
+        this.projection = TupleCompiler.compileProjection(child.getVariableList(), variableList);
     }
 
     /**
@@ -42,39 +60,45 @@ public class ProjectOperator extends Operator{
      */
     @Override
     public Tuple getNextTuple() {
+        if (childFinished){
+            List<Term> spilledTerms = usedTuple.nextSpilled();
+            return spilledTerms == null ? null : new Tuple(headName, spilledTerms);
+        }
         //set initial data
         Tuple nextTuple = child.getNextTuple();
-        List<String> variablePosition = child.getVariableList();
 
         while (nextTuple!=null){
-            List<Term> outputTerms = new ArrayList<>();
-            List<Term> tupleTerms = nextTuple.getTerms();
-            Map<String, Term> relationTerm = new HashMap<>();
-            //store child tuple's value that map to each value's
-            //corresponding variable name
-            for (int i = 0; i < variablePosition.size();i++){
-                relationTerm.put(variablePosition.get(i),tupleTerms.get(i));
-            }
-            //set output variable's value map
-            for (String variable: this.variableList){
-                if (relationTerm.containsKey(variable)){
-                    outputTerms.add(relationTerm.get(variable));
-                }
-            }
-
-            //initialize output tuple
-            Tuple outputTuple = new Tuple(headName, outputTerms);
+            //take the values of output variables from child tuple
+            List<Term> outputTerms = projection.apply(nextTuple.getTerms());
             //if this tuple never appeared before, return
-            if (!usedTuple.contains(outputTuple.toString())){
-                usedTuple.add(outputTuple.toString());
-                return outputTuple;
+            if (usedTuple.add(outputTerms)){
+                return new Tuple(headName, outputTerms);
             }
             else {
                 //otherwise check next tuple
                 nextTuple = child.getNextTuple();
             }
         }
-        return null;
+        childFinished = true;
+        return getNextTuple();
+    }
+
+    /**
+     * get the child operators of this operator
+     * @return list of child operators
+     */
+    @Override
+    public List<Operator> getChildren(){
+        return Collections.singletonList(child);
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the output variables
+     */
+    @Override
+    public String describe(){
+        return "Project " + variableList;
     }
 
     /**
@@ -83,5 +107,16 @@ public class ProjectOperator extends Operator{
     @Override
     public void reset() {
         child.reset();
+        usedTuple.clear();
+        childFinished = false;
+    }
+
+    /**
+     * forget the appeared tuples and delete their temporary files, then close the child
+     */
+    @Override
+    public void close() {
+        usedTuple.clear();
+        super.close();
     }
 }
@@ -34,13 +34,73 @@ public class QueryBuilder {
     //these variables that either in head output or comparison atoms
     //used in projection for query optimisation
     private ArrayList<String> necessaryVariables;
+    //number of left tuples buffered per block by block nested loop join,
+    //can be set by the system property minibase.blockSize
+    public static int joinBlockSize = Integer.getInteger("minibase.blockSize", BlockNestedLoopJoinOperator.DEFAULT_BLOCK_SIZE);
+    //bytes of memory a cached inner relation of a nested loop join can use before it is spilled
+    //to a temporary file, can be set by the system property minibase.materializeBudget
+    public static long materializeBudget = Long.getLong("minibase.materializeBudget", MaterializeOperator.DEFAULT_MEMORY_BUDGET);
+    //bytes of memory the appeared tuples of a projection can use before they are spilled
+    //to temporary files, can be set by the system property minibase.distinctBudget
+    public static long distinctBudget = Long.getLong("minibase.distinctBudget", SpillingDistinct.DEFAULT_MEMORY_BUDGET);
+    //number of worker threads used by hash join, can be set by the system property minibase.threads
+    public static int joinThreads = Integer.getInteger("minibase.threads", HashJoinOperator.DEFAULT_THREADS);
+    //number of worker threads that build partial sums of SUM queries, the same as hash join by default,
+    //can be set by the system property minibase.aggregateThreads
+    public static int aggregateThreads = Integer.getInteger("minibase.aggregateThreads", joinThreads);
+    //whether hash joins publish runtime filters of their build side to the scans of their probe side,
+    //can be turned off by the system property minibase.runtimeFilter=false
+    public static boolean useRuntimeFilters = !"false".equals(System.getProperty("minibase.runtimeFilter"));
+    //whether selections reorder their restrictions by observed pass rate and time,
+    //can be turned off by the system property minibase.adaptiveSelect=false
+    public static boolean useAdaptiveSelection = !"false".equals(System.getProperty("minibase.adaptiveSelect"));
+    //whether cyclic queries use leapfrog triejoin instead of a binary join tree,
+    //can be turned off by the system property minibase.wcoj=false
+    public static boolean useWorstCaseOptimalJoin = !"false".equals(System.getProperty("minibase.wcoj"));
+    //whether acyclic queries are reduced by semi-joins (Yannakakis algorithm) before joining,
+    //can be turned off by the system property minibase.yannakakis=false
+    public static boolean useSemiJoinReduction = !"false".equals(System.getProperty("minibase.yannakakis"));
+    //whether SUM() and COUNT() queries aggregate relations before joining them,
+    //can be turned off by the system property minibase.eagerAggregation=false
+    public static boolean useEagerAggregation = !"false".equals(System.getProperty("minibase.eagerAggregation"));
+    //whether the relations are joined in the plan of lowest estimated cost instead of the query's order,
+    //relations reduced by semi-joins are ordered by their sizes after the reduction,
+    //can be turned off by the system property minibase.joinOrder=false
+    public static boolean useCostBasedJoinOrder = !"false".equals(System.getProperty("minibase.joinOrder"));
+    //max number of relations ordered by dynamic programming, more relations are ordered greedily,
+    //can be set by the system property minibase.dpLimit
+    public static int joinOrderDpLimit = Integer.getInteger("minibase.dpLimit", JoinOrderOptimizer.DEFAULT_DP_LIMIT);
+    //whether the cost based join order can join 2 joins, otherwise every join has a relation as its right input,
+    //can be turned off by the system property minibase.bushy=false
+    public static boolean useBushyJoinTrees = !"false".equals(System.getProperty("minibase.bushy"));
+    //whether the plan is explained, then every operator is wrapped by a profilingOperator
+    //and the estimated rows of the operators are recorded
+    private final boolean explain;
+    //estimated rows of the operators, recorded if the plan is explained
+    private final Map<Operator,Double> estimatedRows;
+    //the optimizer that estimates rows, null if it is not needed
+    private JoinOrderOptimizer optimizer;
+    //position of the relation of each base operator, and of the operators that replace it
+    private final Map<Operator,Integer> relationOf;
 
     /**
      * Constructor for queryBuilder, set essential data.
      * @param query the input query
      */
     public QueryBuilder(Query query){
+        this(query, false);
+    }
+
+    /**
+     * Constructor for queryBuilder that can explain the plan
+     * @param query the input query
+     * @param explain whether every operator is wrapped by a profilingOperator, and the estimated rows are recorded
+     */
+    public QueryBuilder(Query query, boolean explain){
         this.query = query;
+        this.explain = explain;
+        this.estimatedRows = new IdentityHashMap<>();
+        this.relationOf = new IdentityHashMap<>();
         unappearedChar = 'a';
     }
 
@@ -132,76 +192,385 @@ public class QueryBuilder {
      * @return
      */
     public Operator buildQuery(){
-        Operator root = null;
+        //add the comparisons implied by equalities between variables, like u = 1 from x = u and x = 1
+        PredicateInference inference = new PredicateInference(comparisonAtomList);
+        comparisonAtomList.addAll(inference.infer());
+        //if the comparisons contradict each other, like x > 5 and x < 3, the output is empty
+        //and no relation needs to be read
+        if (!inference.isSatisfiable(variableTypes())){
+            return buildHead(track(new TupleListOperator(new ArrayList<>(appearedVariableName), new ArrayList<>())));
+        }
         //split compare atoms to selection compare list and join condition list.
         splitCompare();
-        //query relations 1 by 1
-        for (int i = 0;i<relationalAtomList.size();i++){
-            //initialize variables
-            RelationalAtom atom = relationalAtomList.get(i);
-            //each relation's base operator should be scanOperator to get data
-            Operator operatorPointer = new ScanOperator(atom);
-            List<ComparisonAtom> suitableCompare = new ArrayList<>();
-            List<String> variableString = operatorPointer.variableList;
-            //query selections to find selection that suitable for this case
-            for (ComparisonAtom compare: selectAtomList){
-                Term term1 = compare.getTerm1();
-                Term term2 = compare.getTerm2();
-                if (checkCompareSuit(term1,term2,variableString)){
-                    suitableCompare.add(compare);
+        JoinGraph.JoinTree joinTree = new JoinGraph(relationalAtomList).joinTree();
+        boolean reduce = useSemiJoinReduction && relationalAtomList.size() >= 3 && joinTree != null;
+        boolean order = useCostBasedJoinOrder && relationalAtomList.size() >= 2;
+        if (explain || order){
+            optimizer = new JoinOrderOptimizer(relationalAtomList, selectAtomList, joinAtomList, joinOrderDpLimit, useBushyJoinTrees);
+        }
+        //cyclic queries are joined by leapfrog triejoin, which joins all relations at once
+        //and avoids the large intermediate results of a binary join tree
+        if (useWorstCaseOptimalJoin && relationalAtomList.size() >= 3 && joinTree == null){
+            return buildHead(buildTriejoin());
+        }
+        List<Operator> inputs = new ArrayList<>();
+        for (int i = 0; i < relationalAtomList.size(); i++){
+            inputs.add(buildBaseOperator(relationalAtomList.get(i)));
+            relationOf.put(inputs.get(i), i);
+            recordEstimate(inputs.get(i), Collections.singletonList(i));
+        }
+        //acyclic queries remove dangling tuples by semi-joins along the join tree first, the semi-joins
+        //do not choose a good join order, so the reduced relations are ordered by their actual sizes,
+        //or joined from the root of the join tree down if the cost based join order is turned off
+        if (reduce){
+            List<Operator> reduced = new SemiJoinReducer(inputs, joinTree).reduce();
+            List<Integer> topDown = joinTree.topDownOrder();
+            List<Operator> reducedInputs = new ArrayList<>(inputs);
+            for (int k = 0; k < reduced.size(); k++){
+                int relation = topDown.get(k);
+                if (order){
+                    optimizer.setRows(relation, ((TupleListOperator) reduced.get(k)).size());
                 }
+                Operator input = track(reduced.get(k));
+                relationOf.put(input, relation);
+                reducedInputs.set(order ? relation : k, input);
             }
-            //if there is at least 1 suitable selection condition
-            //create a selectOperator using the base scanOperator as child.
-            if (!suitableCompare.isEmpty()){
-                operatorPointer = new SelectOperator(operatorPointer,suitableCompare);
+            inputs = reducedInputs;
+        }
+        //join the relations in the join tree with the lowest estimated cost
+        JoinOrderOptimizer.Plan plan = order ? optimizer.plan() : null;
+        //aggregate relations by the variables the rest of the query needs before joining them,
+        //then the query's aggregates are computed from the joined partial aggregates
+        if (useEagerAggregation && relationalAtomList.size() >= 2){
+            EagerAggregation eagerAggregation = new EagerAggregation(query.getHead(), joinAtomList, variableTypes());
+            if (eagerAggregation.canRewrite()){
+                List<Operator> rewritten = eagerAggregation.rewrite(inputs);
+                for (int i = 0; i < rewritten.size(); i++){
+                    if (rewritten.get(i) != inputs.get(i)){
+                        Operator partial = track(rewritten.get(i));
+                        relationOf.put(partial, relationOf.get(inputs.get(i)));
+                        rewritten.set(i, partial);
+                    }
+                }
+                inputs = rewritten;
+                return buildAggregation(buildJoins(inputs, plan), eagerAggregation.getFinalHead());
             }
+        }
+        return buildHead(buildJoins(inputs, plan));
+    }
+
+    /**
+     * join the input relations by the chosen plan, or in their order if there is no plan
+     * @param inputs base operators of the relations
+     * @param plan the join tree chosen by the optimizer, or null
+     * @return root of the joined relations
+     */
+    private Operator buildJoins(List<Operator> inputs, JoinOrderOptimizer.Plan plan){
+        if (plan == null){
+            return buildLeftDeep(inputs);
+        }
+        return buildJoinTree(plan, inputs, new HashSet<>());
+    }
+
+    /**
+     * build the operators of a join tree, the inputs of a join can both be joins
+     * @param plan the join tree
+     * @param inputs base operators of the relations
+     * @param outsideVariables variables of the relations outside this tree, they must survive
+     * the projections since later joins need them
+     * @return root of this tree
+     */
+    private Operator buildJoinTree(JoinOrderOptimizer.Plan plan, List<Operator> inputs, Set<String> outsideVariables){
+        if (plan.isRelation()){
+            return inputs.get(plan.getRelation());
+        }
+        Set<String> leftOutside = new HashSet<>(outsideVariables);
+        Set<String> rightOutside = new HashSet<>(outsideVariables);
+        collectVariables(plan.getRight(), inputs, leftOutside);
+        collectVariables(plan.getLeft(), inputs, rightOutside);
+        Operator left = buildJoinTree(plan.getLeft(), inputs, leftOutside);
+        Operator right = buildJoinTree(plan.getRight(), inputs, rightOutside);
+        Operator root = join(left, right);
+        if (explain){
+            estimatedRows.put(root, plan.getRows());
+        }
+        return project(root, outsideVariables);
+    }
+
+    /**
+     * add the variables of all relations of a join tree to a set
+     * @param plan the join tree
+     * @param inputs base operators of the relations
+     * @param variables the set
+     */
+    private static void collectVariables(JoinOrderOptimizer.Plan plan, List<Operator> inputs, Set<String> variables){
+        if (plan.isRelation()){
+            variables.addAll(inputs.get(plan.getRelation()).getVariableList());
+            return;
+        }
+        collectVariables(plan.getLeft(), inputs, variables);
+        collectVariables(plan.getRight(), inputs, variables);
+    }
+
+    /**
+     * get the types of the columns each variable appears in, from the schema of the relations
+     * @return map from variable name to its column types, "int" or "string"
+     */
+    private Map<String,List<String>> variableTypes(){
+        Map<String,List<String>> types = new HashMap<>();
+        for (RelationalAtom atom: relationalAtomList){
+            List<String> schema = Catalog.getSchema(atom.getName());
+            List<Term> terms = atom.getTerms();
+            for (int i = 0; i < terms.size() && i < schema.size(); i++){
+                types.computeIfAbsent(terms.get(i).toString(), k -> new ArrayList<>()).add(schema.get(i));
+            }
+        }
+        return types;
+    }
+
+    /**
+     * join the input relations in left-deep join trees, one tree for each connected component of the relations,
+     * so a cross product is never computed before all relations connected by variables or join conditions
+     * are joined, and the trees of the components are joined by cross products at the end
+     * @param inputs base operators of the relations, in join order
+     * @return root of the joined relations
+     */
+    private Operator buildLeftDeep(List<Operator> inputs){
+        List<Set<String>> edges = new ArrayList<>();
+        for (Operator input: inputs){
+            edges.add(new HashSet<>(input.getVariableList()));
+        }
+        Operator root = null;
+        List<Integer> joined = new ArrayList<>();
+        for (List<Integer> component: JoinGraph.components(edges, joinAtomList)){
+            List<Operator> componentInputs = new ArrayList<>();
+            for (Integer i: component){
+                componentInputs.add(inputs.get(i));
+                joined.add(relationOf.get(inputs.get(i)));
+            }
+            Operator componentRoot = buildLeftDeep(componentInputs, new HashSet<>());
+            if (root == null){
+                root = componentRoot;
+            }
+            else {
+                root = join(root, componentRoot);
+                recordEstimate(root, joined);
+                root = project(root, new HashSet<>());
+            }
+        }
+        return root;
+    }
+
+    /**
+     * join the input relations 1 by 1 in a left-deep join tree
+     * @param inputs base operators of the relations, in join order
+     * @param outsideVariables variables of the relations outside this tree, they must survive
+     * the projections since later joins need them
+     * @return root of the joined relations
+     */
+    private Operator buildLeftDeep(List<Operator> inputs, Set<String> outsideVariables){
+        Operator root = null;
+        //variables of the relations that are not joined yet, they must survive
+        //the intermediate projections since later joins need them
+        List<Set<String>> laterVariables = new ArrayList<>();
+        Set<String> later = new HashSet<>(outsideVariables);
+        for (int i = inputs.size() - 1; i >= 0; i--){
+            laterVariables.add(0, new HashSet<>(later));
+            later.addAll(inputs.get(i).getVariableList());
+        }
+        //relations joined so far, used to estimate rows
+        List<Integer> joined = new ArrayList<>();
+        //query relations 1 by 1
+        for (int i = 0;i<inputs.size();i++){
+            Operator operatorPointer = inputs.get(i);
+            joined.add(relationOf.get(operatorPointer));
             //if this relation is the first relation, then set the current operator as root
             if (root == null){
                 root = operatorPointer;
             }
             else {
                 //else join it with the previous root
-                List<ComparisonAtom> joinComparison = new ArrayList<>();
-                //find suitable join conditions
-                for (ComparisonAtom comparisonAtom: joinAtomList){
-                    if (isJoinPair(comparisonAtom,root.getVariableList(),operatorPointer.getVariableList())){
-                        joinComparison.add(comparisonAtom);
-                    }
-                }
-                //change the root to this joinOperator
-                root = new JoinOperator(root,operatorPointer,joinComparison);
+                root = join(root, operatorPointer);
+                recordEstimate(root, joined);
             }
-            //if these query do not have SUM(), then apply projection to remove duplication
-            // and simplify intermediate tuple to reduce intermediate result
-            //the projection's target variables are variables in necessaryVariableList, so
-            //it will not influence the output.
-            if (query.getHead().getSumAggregate()== null && root.variableList!=null){
-                if (root.getVariableList().size()>(necessaryVariables.size()+1)) {
-                    List<Variable> projectObj = new ArrayList<>();
-                    for (String variable : root.getVariableList()) {
-                        if (necessaryVariables.contains(variable)) {
-                            projectObj.add(new Variable(variable));
-                        }
-                    }
-                    Head input = new Head(query.getHead().getName(), projectObj, query.getHead().getSumAggregate());
-                    root = new ProjectOperator(root, input);
+            root = project(root, laterVariables.get(i));
+        }
+        return root;
+    }
+
+    /**
+     * join 2 operators with the join conditions between them
+     * @param left the left input
+     * @param right the right input
+     * @return the join operator
+     */
+    private Operator join(Operator left, Operator right){
+        List<ComparisonAtom> joinComparison = new ArrayList<>();
+        //a join with an empty input has no variable table, the join of it is empty as well,
+        //so it needs no join condition
+        if (left.getVariableList() == null || right.getVariableList() == null){
+            return track(new JoinOperator(left,right,joinComparison));
+        }
+        //find suitable join conditions
+        for (ComparisonAtom comparisonAtom: joinAtomList){
+            if (isJoinPair(comparisonAtom,left.getVariableList(),right.getVariableList())){
+                joinComparison.add(comparisonAtom);
+            }
+        }
+        //use a hash join if the 2 sides are joined by an equality, an inequality join if they are
+        //compared by <, <=, > or >=, otherwise block nested loop join buffers a block of left tuples
+        //so the right input is only rescanned once per block
+        if (HashJoinOperator.hasEqualityKey(left.getVariableList(),right.getVariableList(),joinComparison)){
+            return track(new HashJoinOperator(left,right,joinComparison,joinThreads,useRuntimeFilters));
+        }
+        if (InequalityJoinOperator.hasInequality(left.getVariableList(),right.getVariableList(),joinComparison)){
+            return track(new InequalityJoinOperator(left,right,joinComparison));
+        }
+        //the right input is read again for every block, so cache it after the first pass
+        if (!(ProfilingOperator.unwrap(right) instanceof TupleListOperator)){
+            right = track(new MaterializeOperator(right,materializeBudget));
+        }
+        return track(new BlockNestedLoopJoinOperator(left,right,joinComparison,joinBlockSize));
+    }
+
+    /**
+     * wrap an operator by a profilingOperator if the plan is explained
+     * @param operator the operator
+     * @return the profiling operator, or the operator itself if the plan is not explained
+     */
+    private Operator track(Operator operator){
+        return explain ? new ProfilingOperator(operator) : operator;
+    }
+
+    /**
+     * record the estimated rows of an operator that joins some relations, if the plan is explained
+     * @param operator the operator
+     * @param relations positions of the joined relations, null for an operator that is not a relation
+     */
+    private void recordEstimate(Operator operator, List<Integer> relations){
+        if (explain && optimizer != null && !relations.contains(null)){
+            estimatedRows.put(operator, optimizer.estimateRows(relations));
+        }
+    }
+
+    /**
+     * get the estimated rows of the operators, recorded if the plan is explained
+     * @return map from operator to its estimated rows
+     */
+    public Map<Operator,Double> getEstimatedRows(){
+        return estimatedRows;
+    }
+
+    /**
+     * if these query do not have SUM(), then apply projection to remove duplication
+     * and simplify intermediate tuple to reduce intermediate result
+     * the projection's target variables are variables in necessaryVariableList or
+     * variables of relations that are joined later, so it will not influence the output.
+     * @param root the joined relations
+     * @param laterVariables variables of the relations that are joined later
+     * @return the projected root, or the root if no variable can be removed
+     */
+    private Operator project(Operator root, Set<String> laterVariables){
+        if (query.getHead().getSumAggregate()== null && root.variableList!=null){
+            List<Variable> projectObj = new ArrayList<>();
+            for (String variable : root.getVariableList()) {
+                if (necessaryVariables.contains(variable) || laterVariables.contains(variable)) {
+                    projectObj.add(new Variable(variable));
                 }
             }
+            //projections spill their appeared tuples beyond the memory budget,
+            //so a projection is added whenever it removes a variable
+            if (root.getVariableList().size()>projectObj.size()) {
+                Head input = new Head(query.getHead().getName(), projectObj, query.getHead().getSumAggregate());
+                return track(new ProjectOperator(root, input, distinctBudget));
+            }
+        }
+        return root;
+    }
+
+    /**
+     * build the scan operator of a relation, and put it under a selectOperator
+     * if there is any selection condition for this relation.
+     * @param atom the relation
+     * @return the base operator of this relation
+     */
+    private Operator buildBaseOperator(RelationalAtom atom){
+        //each relation's base operator should be scanOperator to get data
+        Operator operatorPointer = track(new ScanOperator(atom));
+        List<ComparisonAtom> suitableCompare = new ArrayList<>();
+        List<String> variableString = operatorPointer.variableList;
+        //query selections to find selection that suitable for this case
+        for (ComparisonAtom compare: selectAtomList){
+            Term term1 = compare.getTerm1();
+            Term term2 = compare.getTerm2();
+            if (checkCompareSuit(term1,term2,variableString)){
+                suitableCompare.add(compare);
+            }
+        }
+        //if there is at least 1 suitable selection condition
+        //create a selectOperator using the base scanOperator as child.
+        if (!suitableCompare.isEmpty()){
+            operatorPointer = track(new SelectOperator(operatorPointer,suitableCompare,useAdaptiveSelection));
+        }
+        return operatorPointer;
+    }
+
+    /**
+     * join all relations with a leapfrog triejoin, the join conditions are then checked
+     * by a selectOperator, since every variable appears once in the triejoin's output.
+     * @return root of the joined relations
+     */
+    private Operator buildTriejoin(){
+        List<Operator> children = new ArrayList<>();
+        List<Integer> relations = new ArrayList<>();
+        for (int i = 0; i < relationalAtomList.size(); i++){
+            children.add(buildBaseOperator(relationalAtomList.get(i)));
+            relations.add(i);
+            recordEstimate(children.get(i), Collections.singletonList(i));
+        }
+        Operator root = track(new LeapfrogTriejoinOperator(children));
+        recordEstimate(root, relations);
+        if (!joinAtomList.isEmpty()){
+            root = track(new SelectOperator(root,joinAtomList,useAdaptiveSelection));
         }
+        return root;
+    }
+
+    /**
+     * put the root under the operator that produces the query head
+     * @param root root of the joined relations
+     * @return the new root
+     */
+    private Operator buildHead(Operator root){
         //if this query don't have SUM(), put root under projectOperator and return it as new root
         if (query.getHead().getSumAggregate()== null){
-            return new ProjectOperator(root,query.getHead());
+            return track(new ProjectOperator(root,query.getHead(),distinctBudget));
         }
-        //otherwise use sumOperator and return it as root
+        //otherwise aggregate and return it as root
         else {
-            return new SumOperator(root,query.getHead());
+            return buildAggregation(root,query.getHead());
         }
     }
 
+    /**
+     * put the root under the operator that computes the aggregates of a head
+     * @param root root of the joined relations
+     * @param head the head with aggregates
+     * @return orderedSumOperator if the root's tuples are ordered by the head variables,
+     * so groups are returned one by one without a hash map, otherwise sumOperator
+     */
+    private Operator buildAggregation(Operator root, Head head){
+        if (OrderedSumOperator.isGrouped(root, head)){
+            return track(new OrderedSumOperator(root, head));
+        }
+        return track(new SumOperator(root, head, aggregateThreads));
+    }
+
     /**
      * Check if this compare is a join condition,
-     * by checking if the compare involve more than 1 relation
+     * by checking if the compare involve more than 1 relation.
+     * A compare between a variable and a constant is never a join condition, it is a selection
+     * for every relation that has this variable.
      * @param compare the check object
      * @param atomList the list of all relations
      * @return if it is a join condition
@@ -209,7 +578,7 @@ public class QueryBuilder {
     public boolean isJoinCondition(ComparisonAtom compare,List<RelationalAtom> atomList){
         Term term1 = compare.getTerm1();
         Term term2 = compare.getTerm2();
-        if (term1 instanceof Constant && term2 instanceof Constant){return false;}
+        if (term1 instanceof Constant || term2 instanceof Constant){return false;}
         return involveEnoughRelation(atomList, term1, term2);
     }
 
@@ -248,7 +617,8 @@ public class QueryBuilder {
     }
 
     /**
-     * Check if the input join condition can be a suitable join comparison for the 2 input atoms
+     * Check if the input join condition can be a suitable join comparison for the 2 input atoms,
+     * which is true if both atoms have a variable of it and every variable of it is in one of the atoms
      * @param compare input join condition
      * @param atom1Variable atom1's variables
      * @param atom2Variable atom2's variables
@@ -256,8 +626,14 @@ public class QueryBuilder {
      */
     public boolean isJoinPair(ComparisonAtom compare,List<String> atom1Variable,List<String> atom2Variable){
         Term term1 = compare.getTerm1();
-        Term term2 = compare.getTerm1();
+        Term term2 = compare.getTerm2();
         if (term1 instanceof Constant && term2 instanceof Constant){return false;}
+        //a condition on a variable of a relation that is not joined yet can not be checked here
+        for (Term term: Arrays.asList(term1, term2)){
+            if (term instanceof Variable && !atom1Variable.contains(term.toString()) && !atom2Variable.contains(term.toString())){
+                return false;
+            }
+        }
         List<List<String>> variableList = new ArrayList<>();
         variableList.add(atom1Variable);
         variableList.add(atom2Variable);
@@ -0,0 +1,113 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+import ed.inf.adbs.minibase.base.Term;
+
+import java.util.Collection;
+
+/**
+ * RuntimeFilter summarises the join key values of a hash join's build side by their min, max and
+ * a Bloom filter. The hash join passes it to the scanOperator that produces the key on the probe side,
+ * and the scan drops rows whose key can not be in the build side before building their tuples.
+ * A value that passes may still have no match, but a value that fails never has one.
+ * It also counts tested and pruned rows.
+ */
+public class RuntimeFilter {
+    //max number of build keys a filter is built for, larger build sides are rarely selective
+    public static final int MAX_KEYS = 1 << 22;
+    //bits of the Bloom filter per key and number of hash functions, about 1% false positives
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+    //the Bloom filter
+    private final long[] bits;
+    private final int bitCount;
+    //smallest and largest key
+    private Term min;
+    private Term max;
+    //statistics
+    private long testedRows;
+    private long prunedRows;
+
+    /**
+     * constructor for runtime filter
+     * @param keys join key values of the build side
+     */
+    public RuntimeFilter(Collection<Term> keys){
+        this.bitCount = Math.max(64, keys.size() * BITS_PER_KEY);
+        this.bits = new long[(bitCount + 63) / 64];
+        for (Term key: keys){
+            if (min == null || Tuple.compareTerms(key, min) < 0){
+                min = key;
+            }
+            if (max == null || Tuple.compareTerms(key, max) > 0){
+                max = key;
+            }
+            int hash1 = hash(key);
+            int hash2 = (hash1 >>> 16) | 1;
+            for (int i = 0; i < HASHES; i++){
+                int bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     * check if a value may be one of the build keys, and count the result
+     * @param value the probe value
+     * @return false if the value is surely not a build key
+     */
+    public boolean mightContain(Term value){
+        testedRows++;
+        if (min == null || Tuple.compareTerms(value, min) < 0 || Tuple.compareTerms(value, max) > 0){
+            prunedRows++;
+            return false;
+        }
+        int hash1 = hash(value);
+        int hash2 = (hash1 >>> 16) | 1;
+        for (int i = 0; i < HASHES; i++){
+            int bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0){
+                prunedRows++;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * hash a constant by its value
+     * @param term the constant
+     * @return hash code
+     */
+    private static int hash(Term term){
+        int hash;
+        if (term instanceof IntegerConstant){
+            hash = ((IntegerConstant) term).getValue();
+        }
+        else {
+            hash = ((StringConstant) term).getValue().hashCode() ^ 0x5bd1e995;
+        }
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 15);
+    }
+
+    /**
+     * @return number of rows tested by this filter
+     */
+    public long getTestedRows(){
+        return testedRows;
+    }
+
+    /**
+     * @return number of rows dropped by this filter
+     */
+    public long getPrunedRows(){
+        return prunedRows;
+    }
+
+    @Override
+    public String toString() {
+        return "runtime filter [" + min + ", " + max + "]: " + prunedRows + " of " + testedRows + " rows pruned";
+    }
+}
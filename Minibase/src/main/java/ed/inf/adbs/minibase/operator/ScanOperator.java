@@ -25,6 +25,9 @@ public class ScanOperator extends Operator{
     private BufferedReader br;
     //the schema file of this relation
     ArrayList<String> schema;
+    //runtime filters published by hash joins, and the positions they check
+    private final List<RuntimeFilter> runtimeFilters = new ArrayList<>();
+    private final List<Integer> filterColumns = new ArrayList<>();
 
     /**
      * Constructor of scanOperator, which initialise some essential data.
@@ -68,25 +71,25 @@ public class ScanOperator extends Operator{
             //read current line from file
             String slot = br.readLine();
             //if not eof, keep processing
-            if (slot!=null) {
+            while (slot!=null) {
                 String[] elements = slot.split(", ");
+                //rows whose key can not match the build side of a hash join are dropped
+                //before their other values are parsed
+                if (!passRuntimeFilters(elements)){
+                    slot = br.readLine();
+                    continue;
+                }
                 Term currentTerm;
                 ArrayList<Term> termList = new ArrayList<>();
                 for (int i = 0; i < elements.length;i++) {
-                    if (Objects.equals(schema.get(i), "int")) {
-                        currentTerm = new IntegerConstant(Integer.parseInt(elements[i]));
-                    } else {
-                        currentTerm = new StringConstant(elements[i].replaceAll("'",""));
-                    }
+                    currentTerm = parseTerm(i, elements[i]);
                     termList.add(currentTerm);
                 }
                 //return output tuple
                 Tuple outputTuple = new Tuple(relationName, termList);
                 return outputTuple;
             }
-            else{
-                return null;
-            }
+            return null;
         }
         catch (Exception e){
             e.printStackTrace();
@@ -94,6 +97,71 @@ public class ScanOperator extends Operator{
         }
     }
 
+    /**
+     * convert a value of the data file to a term according to the schema
+     * @param column position of the value
+     * @param element the value's text
+     * @return the term of this value
+     */
+    private Term parseTerm(int column, String element){
+        if (Objects.equals(schema.get(column), "int")) {
+            return new IntegerConstant(Integer.parseInt(element));
+        }
+        return new StringConstant(element.replaceAll("'",""));
+    }
+
+    /**
+     * check a row against the runtime filters
+     * @param elements values of the row
+     * @return false if any filter drops this row
+     */
+    private boolean passRuntimeFilters(String[] elements){
+        for (int i = 0; i < runtimeFilters.size(); i++){
+            int column = filterColumns.get(i);
+            if (!runtimeFilters.get(i).mightContain(parseTerm(column, elements[column]))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * add a runtime filter on a variable of this relation
+     * @param variable the variable
+     * @param filter the filter
+     * @return if the variable is in this relation and the filter is added
+     */
+    public boolean addRuntimeFilter(String variable, RuntimeFilter filter){
+        int column = variableList.indexOf(variable);
+        if (column < 0){
+            return false;
+        }
+        runtimeFilters.add(filter);
+        filterColumns.add(column);
+        return true;
+    }
+
+    /**
+     * get the runtime filters added to this scan
+     * @return list of filters
+     */
+    public List<RuntimeFilter> getRuntimeFilters(){
+        return runtimeFilters;
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the relation, its variables and the runtime filters added to this scan
+     */
+    @Override
+    public String describe(){
+        StringBuilder builder = new StringBuilder("Scan " + relationName + " " + variableList);
+        for (RuntimeFilter filter: runtimeFilters){
+            builder.append(", ").append(filter);
+        }
+        return builder.toString();
+    }
+
     /**
      * reset this operator to initial state
      */
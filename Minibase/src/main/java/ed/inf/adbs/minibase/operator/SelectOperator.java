@@ -1,28 +1,79 @@
 package ed.inf.adbs.minibase.operator;
 
 import ed.inf.adbs.minibase.base.ComparisonAtom;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * SelectOperator acts as a filter to get tuples that satisfies
- * the input restrictions. For each tuple, it will check it by
- * using selectEvaluation class.
+ * the input restrictions. The restrictions are compiled by tupleCompiler
+ * when the operator is built, with every variable resolved to its position in variableList,
+ * and each tuple is checked by the compiled predicates, which read the values of the tuple
+ * directly and allocate nothing.
+ * If it is adaptive, every SAMPLE_INTERVAL-th tuple is checked against all restrictions while the
+ * pass rate and time of each restriction are recorded, and every REORDER_INTERVAL tuples the
+ * restrictions are reordered by time / (1 - pass rate), so cheap restrictions that drop many
+ * tuples are checked first. Older statistics are halved on every reorder, so the order follows
+ * changes in the input.
  */
 public class SelectOperator extends Operator{
+    //number of tuples between 2 sampled tuples, and between 2 reorders
+    private static final int SAMPLE_INTERVAL = 32;
+    private static final int REORDER_INTERVAL = 4096;
+    //a new order is used only if its expected time is below this fraction of the current order's
+    private static final double REORDER_GAIN = 0.9;
     //child operator
     private final Operator child;
     //the list of restrictions
     private final List<ComparisonAtom> comparisonAtomList;
+    //the compiled restrictions, one for each restriction
+    private final TupleCompiler.RowPredicate[] predicates;
+    //the order restrictions are checked in
+    private final int[] order;
+    //whether the order is adapted to observed statistics
+    private final boolean adaptive;
+    //tuples left until the next sample, and sampled tuples left until the next reorder
+    private int untilSample;
+    private int untilReorder;
+    //number of sampled tuples, and how many of them pass each restriction and the time spent on it
+    private long samples;
+    private final long[] passed;
+    private final long[] nanos;
+    //number of times the order changed
+    private int reorders;
 
     /**
-     * constructor for select operator.
+     * constructor for select operator, the restrictions are checked in the given order.
      * @param child child operator
      * @param comparisonAtomList the list of restrictions
      */
     public SelectOperator(Operator child, List<ComparisonAtom> comparisonAtomList){
+        this(child, comparisonAtomList, false);
+    }
+
+    /**
+     * constructor for select operator.
+     * @param child child operator
+     * @param comparisonAtomList the list of restrictions
+     * @param adaptive whether to reorder restrictions by their observed pass rate and time
+     */
+    public SelectOperator(Operator child, List<ComparisonAtom> comparisonAtomList, boolean adaptive){
         this.child = child;
         this.comparisonAtomList = comparisonAtomList;
         this.variableList = child.getVariableList();
+        this.predicates = new TupleCompiler.RowPredicate[comparisonAtomList.size()];
+        this.order = new int[predicates.length];
+        for (int i = 0; i < predicates.length; i++){
+            predicates[i] = TupleCompiler.compileSelection(variableList, Collections.singletonList(comparisonAtomList.get(i)));
+            order[i] = i;
+        }
+        //a single restriction has no order to adapt
+        this.adaptive = adaptive && predicates.length > 1;
+        this.passed = new long[predicates.length];
+        this.nanos = new long[predicates.length];
+        this.untilSample = SAMPLE_INTERVAL;
+        this.untilReorder = REORDER_INTERVAL / SAMPLE_INTERVAL;
     }
 
     /**
@@ -33,9 +84,20 @@ public class SelectOperator extends Operator{
     public Tuple getNextTuple() {
         Tuple nextTuple = child.getNextTuple();
         while (nextTuple !=null){
-            //use selectEvaluation to evaluate whether this tuple is valid
-            SelectEvaluation selectEvaluation = new SelectEvaluation(variableList,nextTuple,comparisonAtomList);
-            if (selectEvaluation.evaluate()){
+            boolean valid;
+            if (adaptive && --untilSample == 0){
+                untilSample = SAMPLE_INTERVAL;
+                valid = sample(nextTuple);
+                if (--untilReorder <= 0){
+                    untilReorder = REORDER_INTERVAL / SAMPLE_INTERVAL;
+                    reorder();
+                }
+            }
+            else {
+                valid = test(nextTuple);
+            }
+            //use the compiled predicates to evaluate whether this tuple is valid
+            if (valid){
                 return nextTuple;
             }
             else {
@@ -46,7 +108,141 @@ public class SelectOperator extends Operator{
     }
 
     /**
-     * reset this operator to initial state
+     * check a tuple against the restrictions in current order, stop at the first failed one
+     * @param tuple the tuple
+     * @return whether the tuple satisfies all restrictions
+     */
+    private boolean test(Tuple tuple){
+        for (int i: order){
+            if (!predicates[i].test(tuple.getTerms())){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * check a tuple against all restrictions, and record the result and time of each
+     * @param tuple the tuple
+     * @return whether the tuple satisfies all restrictions
+     */
+    private boolean sample(Tuple tuple){
+        boolean valid = true;
+        samples++;
+        for (int i: order){
+            long start = System.nanoTime();
+            boolean pass = predicates[i].test(tuple.getTerms());
+            nanos[i] += System.nanoTime() - start;
+            if (pass){
+                passed[i]++;
+            }
+            valid &= pass;
+        }
+        return valid;
+    }
+
+    /**
+     * sort the restrictions by time / (1 - pass rate), and halve the statistics
+     */
+    private void reorder(){
+        Integer[] sorted = new Integer[order.length];
+        for (int i = 0; i < order.length; i++){
+            sorted[i] = order[i];
+        }
+        Arrays.sort(sorted, (a, b) -> Double.compare(rank(a), rank(b)));
+        int[] candidate = new int[order.length];
+        for (int i = 0; i < order.length; i++){
+            candidate[i] = sorted[i];
+        }
+        //keep the current order unless the new one is clearly cheaper, so noise in the
+        //measured times does not make the order change back and forth
+        if (expectedTime(candidate) < REORDER_GAIN * expectedTime(order)){
+            System.arraycopy(candidate, 0, order, 0, order.length);
+            reorders++;
+        }
+        samples /= 2;
+        for (int i = 0; i < order.length; i++){
+            passed[i] /= 2;
+            nanos[i] /= 2;
+        }
+    }
+
+    /**
+     * the expected time of checking a tuple against the restrictions in this order, by the statistics
+     * @param candidate an order of restrictions
+     * @return expected time in nanoseconds
+     */
+    private double expectedTime(int[] candidate){
+        double time = 0;
+        double reached = 1;
+        for (int i: candidate){
+            time += reached * nanos[i] / samples;
+            reached *= (double) passed[i] / samples;
+        }
+        return time;
+    }
+
+    /**
+     * the expected time a restriction spends for each tuple it drops, smaller ranks are checked first
+     * @param i index of the restriction
+     * @return rank of the restriction
+     */
+    private double rank(int i){
+        double time = (double) nanos[i] / samples;
+        double dropRate = 1 - (double) passed[i] / samples;
+        return time / Math.max(dropRate, 1e-6);
+    }
+
+    /**
+     * get the restrictions in the order they are checked now, with their observed pass rate and time
+     * @return description of the restrictions
+     */
+    public String getStatistics(){
+        StringBuilder builder = new StringBuilder();
+        for (int i: order){
+            if (builder.length() > 0){
+                builder.append(", ");
+            }
+            builder.append(comparisonAtomList.get(i));
+            if (samples > 0){
+                builder.append(String.format(" (pass %.2f, %d ns)", (double) passed[i] / samples, nanos[i] / samples));
+            }
+        }
+        if (adaptive){
+            builder.append(", reordered ").append(reorders).append(" times");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * get the variables the output tuples are ordered by, selection keeps the child's order
+     * @return the child's ordering variables
+     */
+    @Override
+    public List<String> getOrdering(){
+        return child.getOrdering();
+    }
+
+    /**
+     * get the child operators of this operator
+     * @return list of child operators
+     */
+    @Override
+    public List<Operator> getChildren(){
+        return Collections.singletonList(child);
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the restrictions in the order they are checked now, with their observed pass rate and time
+     */
+    @Override
+    public String describe(){
+        return "Select " + getStatistics();
+    }
+
+    /**
+     * reset this operator to initial state, the observed statistics and the order are kept
      */
     @Override
     public void reset() {
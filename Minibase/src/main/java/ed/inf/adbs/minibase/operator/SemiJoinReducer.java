@@ -0,0 +1,144 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.Term;
+
+import java.util.*;
+
+/**
+ * This class implements the semi-join reduction of Yannakakis algorithm for acyclic queries.
+ * Every relation is read into memory, then along the join tree a bottom-up pass removes parent
+ * tuples that do not match any tuple of a child, and a top-down pass removes child tuples that
+ * do not match any tuple of the parent. After the 2 passes, no tuple is dangling: every remaining
+ * tuple is part of at least one output of the full join, so if the relations are joined in an
+ * order where each one is connected to the previous ones, no intermediate result is larger than
+ * the final join output.
+ */
+public class SemiJoinReducer {
+    //base operators of the relations
+    private final List<Operator> children;
+    //the join tree of these relations
+    private final JoinGraph.JoinTree joinTree;
+
+    /**
+     * constructor for semi-join reducer
+     * @param children base operators of the relations, in the same order as in the join tree
+     * @param joinTree join tree of the query
+     */
+    public SemiJoinReducer(List<Operator> children, JoinGraph.JoinTree joinTree){
+        this.children = children;
+        this.joinTree = joinTree;
+    }
+
+    /**
+     * read and reduce every relation
+     * @return reduced relations ordered from the root of the join tree down,
+     * so each relation shares its variables with a relation before it
+     */
+    public List<Operator> reduce(){
+        List<List<Tuple>> relations = new ArrayList<>();
+        for (Operator child: children){
+            relations.add(readAll(child));
+        }
+        //bottom-up pass, parent = parent semi-join child
+        for (Integer i: joinTree.bottomUpOrder()){
+            int parent = joinTree.getParent(i);
+            if (parent >= 0){
+                relations.set(parent, semiJoin(parent, relations.get(parent), i, relations.get(i)));
+            }
+        }
+        //top-down pass, child = child semi-join parent
+        List<Integer> topDown = joinTree.topDownOrder();
+        for (Integer i: topDown){
+            int parent = joinTree.getParent(i);
+            if (parent >= 0){
+                relations.set(i, semiJoin(i, relations.get(i), parent, relations.get(parent)));
+            }
+        }
+        List<Operator> reduced = new ArrayList<>();
+        for (Integer i: topDown){
+            reduced.add(new TupleListOperator(children.get(i).getVariableList(), relations.get(i)));
+        }
+        return reduced;
+    }
+
+    /**
+     * read all tuples of an operator, tuples whose repeated variables have different values are dropped
+     * @param child the operator
+     * @return list of its tuples
+     */
+    private static List<Tuple> readAll(Operator child){
+        List<String> variables = child.getVariableList();
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple = child.getNextTuple();
+        while (tuple != null){
+            if (repeatedVariablesMatch(variables, tuple.getTerms())){
+                tuples.add(tuple);
+            }
+            tuple = child.getNextTuple();
+        }
+        return tuples;
+    }
+
+    /**
+     * keep tuples of the left relation that match at least one tuple of the right relation
+     * on their shared variables
+     * @param left index of left relation
+     * @param leftTuples tuples of left relation
+     * @param right index of right relation
+     * @param rightTuples tuples of right relation
+     * @return the remaining left tuples
+     */
+    private List<Tuple> semiJoin(int left, List<Tuple> leftTuples, int right, List<Tuple> rightTuples){
+        List<String> leftVariables = children.get(left).getVariableList();
+        List<String> rightVariables = children.get(right).getVariableList();
+        List<Integer> leftPositions = new ArrayList<>();
+        List<Integer> rightPositions = new ArrayList<>();
+        for (String variable: new LinkedHashSet<>(leftVariables)){
+            if (rightVariables.contains(variable)){
+                leftPositions.add(leftVariables.indexOf(variable));
+                rightPositions.add(rightVariables.indexOf(variable));
+            }
+        }
+        Set<List<Term>> rightKeys = new HashSet<>();
+        for (Tuple tuple: rightTuples){
+            rightKeys.add(key(tuple, rightPositions));
+        }
+        List<Tuple> result = new ArrayList<>();
+        for (Tuple tuple: leftTuples){
+            if (rightKeys.contains(key(tuple, leftPositions))){
+                result.add(tuple);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * build the join key of a tuple from the values at these positions, constants are compared by value
+     * @param tuple the tuple
+     * @param positions positions of the shared variables
+     * @return join key
+     */
+    private static List<Term> key(Tuple tuple, List<Integer> positions){
+        List<Term> values = new ArrayList<>(positions.size());
+        for (Integer position: positions){
+            values.add(tuple.getTerms().get(position));
+        }
+        return values;
+    }
+
+    /**
+     * check a variable that appears more than once in a relation has the same value in all its positions
+     * @param variables relation's variables
+     * @param terms tuple's terms
+     * @return if all positions of the same variable have the same value
+     */
+    private static boolean repeatedVariablesMatch(List<String> variables, List<Term> terms){
+        for (int i = 0; i < variables.size(); i++){
+            int first = variables.indexOf(variables.get(i));
+            if (first != i && !terms.get(first).equals(terms.get(i))){
+                return false;
+            }
+        }
+        return true;
+    }
+}
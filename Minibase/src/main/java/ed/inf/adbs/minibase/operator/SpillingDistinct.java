@@ -0,0 +1,262 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * SpillingDistinct removes duplicate tuples within a memory budget. The tuples seen so far are kept
+ * in a hash set, and a tuple is returned as soon as it is seen for the first time. When the set grows
+ * beyond the memory budget it stops growing: tuples that are already in the set are still dropped,
+ * and the other tuples are written to temporary partition files by the hash of their values, so all
+ * copies of a tuple go to the same partition. After the input ends, the partitions are read 1 by 1
+ * in the same way with a new set, using a different hash when a partition spills again, and each new
+ * tuple of a partition is returned once.
+ */
+public class SpillingDistinct {
+    //default memory budget of the set of seen tuples in bytes
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    //number of partition files a pass spills to
+    private static final int PARTITIONS = 16;
+    //max bytes of seen tuples kept in memory
+    private final long memoryBudget;
+    //tuples seen in the current pass, and their estimated bytes
+    private Set<List<Term>> seen;
+    private long seenBytes;
+    //level of the current pass, 0 for the input, and the partition files it spills to
+    private int level;
+    private File[] partitionFiles;
+    private DataOutputStream[] partitionOutputs;
+    //partitions that are not read yet and their levels
+    private final Deque<File> pendingFiles;
+    private final Deque<Integer> pendingLevels;
+    //the partition being read
+    private File readFile;
+    private DataInputStream readInput;
+
+    /**
+     * constructor for spilling distinct
+     * @param memoryBudget max bytes of seen tuples kept in memory before spilling to temporary files
+     */
+    public SpillingDistinct(long memoryBudget){
+        this.memoryBudget = memoryBudget;
+        this.seen = new HashSet<>();
+        this.pendingFiles = new ArrayDeque<>();
+        this.pendingLevels = new ArrayDeque<>();
+    }
+
+    /**
+     * check a tuple of the input
+     * @param terms the tuple's values
+     * @return true if the tuple is seen for the first time and should be output now,
+     * false if it is a duplicate or has been spilled to be checked later
+     */
+    public boolean add(List<Term> terms){
+        if (partitionFiles == null){
+            if (seen.add(terms)){
+                seenBytes += estimateBytes(terms);
+                if (seenBytes > memoryBudget){
+                    partitionFiles = new File[PARTITIONS];
+                    partitionOutputs = new DataOutputStream[PARTITIONS];
+                }
+                return true;
+            }
+            return false;
+        }
+        if (!seen.contains(terms)){
+            spill(terms);
+        }
+        return false;
+    }
+
+    /**
+     * get the next tuple from the spilled partitions that was not output before, call it after the input ended
+     * @return the tuple's values, or null if no tuple left
+     */
+    public List<Term> nextSpilled(){
+        try {
+            while (true){
+                if (readInput == null){
+                    finishPass();
+                    if (pendingFiles.isEmpty()){
+                        return null;
+                    }
+                    readFile = pendingFiles.poll();
+                    level = pendingLevels.poll();
+                    readInput = new DataInputStream(new BufferedInputStream(new FileInputStream(readFile)));
+                }
+                List<Term> terms = read(readInput);
+                if (terms == null){
+                    readInput.close();
+                    readInput = null;
+                    readFile.delete();
+                    readFile = null;
+                }
+                else if (add(terms)){
+                    return terms;
+                }
+            }
+        }
+        catch (IOException e){
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * forget all seen tuples and delete the temporary files
+     */
+    public void clear(){
+        closePartitions();
+        if (partitionFiles != null){
+            for (File file: partitionFiles){
+                if (file != null){
+                    file.delete();
+                }
+            }
+        }
+        if (readInput != null){
+            try {
+                readInput.close();
+            }
+            catch (IOException e){
+                e.printStackTrace();
+            }
+            readInput = null;
+            readFile.delete();
+        }
+        for (File file: pendingFiles){
+            file.delete();
+        }
+        pendingFiles.clear();
+        pendingLevels.clear();
+        partitionFiles = null;
+        partitionOutputs = null;
+        seen = new HashSet<>();
+        seenBytes = 0;
+        level = 0;
+    }
+
+    /**
+     * the current pass has read all its tuples, queue its partitions and start a new set for the next pass
+     */
+    private void finishPass() throws IOException {
+        if (partitionFiles != null){
+            closePartitions();
+            for (File file: partitionFiles){
+                if (file != null){
+                    pendingFiles.add(file);
+                    pendingLevels.add(level + 1);
+                }
+            }
+            partitionFiles = null;
+            partitionOutputs = null;
+        }
+        seen = new HashSet<>();
+        seenBytes = 0;
+    }
+
+    /**
+     * write a tuple to its partition file of the current pass
+     * @param terms the tuple's values
+     */
+    private void spill(List<Term> terms){
+        int partition = partitionOf(terms);
+        try {
+            if (partitionOutputs[partition] == null){
+                partitionFiles[partition] = File.createTempFile("minibase-distinct", ".bin");
+                partitionFiles[partition].deleteOnExit();
+                partitionOutputs[partition] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partitionFiles[partition])));
+            }
+            DataOutputStream output = partitionOutputs[partition];
+            output.writeInt(terms.size());
+            for (Term term: terms){
+                if (term instanceof IntegerConstant){
+                    output.writeBoolean(true);
+                    output.writeInt(((IntegerConstant) term).getValue());
+                }
+                else {
+                    output.writeBoolean(false);
+                    output.writeUTF(((StringConstant) term).getValue());
+                }
+            }
+        }
+        catch (IOException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * read a tuple written by spill
+     * @param input the partition file
+     * @return the tuple's values, or null at the end of the file
+     */
+    private static List<Term> read(DataInputStream input) throws IOException {
+        int width;
+        try {
+            width = input.readInt();
+        }
+        catch (EOFException e){
+            return null;
+        }
+        List<Term> terms = new ArrayList<>(width);
+        for (int i = 0; i < width; i++){
+            if (input.readBoolean()){
+                terms.add(new IntegerConstant(input.readInt()));
+            }
+            else {
+                terms.add(new StringConstant(input.readUTF()));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * close the partition files of the current pass
+     */
+    private void closePartitions(){
+        if (partitionOutputs == null){
+            return;
+        }
+        for (DataOutputStream output: partitionOutputs){
+            if (output != null){
+                try {
+                    output.close();
+                }
+                catch (IOException e){
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * choose the partition of a tuple, the hash is mixed with the level so
+     * the tuples of a partition that spills again are split differently
+     * @param terms the tuple's values
+     * @return partition number
+     */
+    private int partitionOf(List<Term> terms){
+        int hash = terms.hashCode() + level * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash & (PARTITIONS - 1);
+    }
+
+    /**
+     * estimate the bytes a tuple takes in the set, including the set entry and the list
+     * @param terms the tuple's values
+     * @return estimated bytes
+     */
+    private static long estimateBytes(List<Term> terms){
+        long bytes = 64 + 8L * terms.size();
+        for (Term term: terms){
+            bytes += term instanceof StringConstant ? 56 + 2L * ((StringConstant) term).getValue().length() : 16;
+        }
+        return bytes;
+    }
+}
@@ -3,28 +3,51 @@ package ed.inf.adbs.minibase.operator;
 import ed.inf.adbs.minibase.base.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 /**
  * this class implements SumOperator, the implementation is similar to an
- * advanced version of projectOperator, which supports SUM()'s calculation.
- * In this operator, for each nextTuple(), we need to loop through all child's output tuple
- * and find the tuple that have not been outputted before, and in each nextTuple loop,
- * for this current output target, we will calculate this tuple's duplication's SUM according
- * to its SUM()'s variables, if in a loop we do not find any tuple that have not been outputted before,
- * that means we outputted all valid outputs, and it's time to return null.
+ * advanced version of projectOperator, which supports the calculation of the head's aggregates:
+ * SUM(), COUNT(), MIN(), MAX() and AVG() of a product of terms, and any number of them in one head.
+ * It is a hash aggregation: the first nextTuple() reads all child's output tuples once,
+ * projects each tuple to its group, which is the values of head variables, and updates the state
+ * of every aggregate of this group with the product of its terms. The groups are kept in a hash map
+ * in the order they first appear, the state of a group is an array of primitive longs: the first long
+ * counts the group's tuples, and every other aggregate than COUNT has its own long that keeps its sum,
+ * min or max, AVG keeps a sum and is divided by the count at output. After the child has no tuple left
+ * every nextTuple() returns the next group with its aggregates. If there is no head variable,
+ * all tuples are in a single group and the output is the aggregates of all tuples.
+ * With more than 1 thread, this thread still aggregates the first tuples itself, since starting threads
+ * costs more than aggregating a small input. If the child has more tuples, this thread hands the rest
+ * in batches to worker threads, each worker builds its own partial states of the groups in the batches
+ * it takes, and remembers the row where each group first appears. The partial states of all workers
+ * are merged after the child has no tuple left, and new groups are added in the order of their first
+ * row, so the groups are output in the order they first appear, as with a single thread.
  */
 public class SumOperator extends Operator{
+    //number of tuples handed to a worker thread at once
+    private static final int BATCH_SIZE = 4096;
+    //number of tuples aggregated by this thread before worker threads are started
+    static final int PARALLEL_THRESHOLD = 16 * BATCH_SIZE;
     //the child operator
-    private final Operator child;
-    //variables for sum calculation
-    private final List<String> sumVariables;
+    protected final Operator child;
+    //the head query, with the group variables and the aggregates
+    private final Head head;
+    //number of worker threads
+    private final int threads;
     //variables need to be projected out
     private final List<String> projectVariables;
-    //appeared group, already outputted tuple
-    private final List<List<Term>> appearedGroup;
-    //child operator's variables position
-    private final List<String> childVariableMap;
-    //the integer used to store current target tuple's sum output
-    private Integer groupSum;
+    //the aggregate function of each head aggregate, and the position of its long in a group's state
+    private final AggregateFunction[] functions;
+    private final int[] slots;
+    //number of longs in a group's state
+    private final int width;
+    //state of each group, in the order the groups appear
+    private final Map<List<Term>,long[]> groupStates;
+    //iterator over the groups after the child is read, null before that
+    private Iterator<Map.Entry<List<Term>,long[]>> output;
+    //the compiled projection to group terms and the compiled product of each aggregate
+    protected final TupleCompiler.Projection projection;
+    private final TupleCompiler.RowFunction[] products;
 
     /**
      * constructor for SumOperator
@@ -32,190 +55,325 @@ public class SumOperator extends Operator{
      * @param head the head query
      */
     public SumOperator(Operator child, Head head) {
+        this(child, head, 1);
+    }
+
+    /**
+     * constructor for SumOperator with worker threads
+     * @param child it's child Operator
+     * @param head the head query
+     * @param threads number of worker threads that build partial states
+     */
+    public SumOperator(Operator child, Head head, int threads) {
         //initialize variables
         this.child = child;
-        this.appearedGroup = new ArrayList<>();
-        this.childVariableMap = child.getVariableList();
+        this.head = head;
+        this.threads = Math.max(1, threads);
+        this.groupStates = new LinkedHashMap<>();
         this.projectVariables = new ArrayList<>();
-        this.sumVariables = new ArrayList<>();
-        this.groupSum = 0;
-        //get head's sumAggregate object
-        SumAggregate sumAggregate = head.getSumAggregate();
-        //store variables for sum calculation
-        for (Term term: sumAggregate.getProductTerms()){
-            sumVariables.add(term.toString());
-        }
         //store variables for projection
         for (Term term: head.getVariables()){
             projectVariables.add(term.toString());
         }
+        this.projection = TupleCompiler.compileProjection(child.getVariableList(), projectVariables);
+        //compile every aggregate's product, and give it a long in the state unless it is a count
+        List<SumAggregate> aggregates = head.getAggregates();
+        this.functions = new AggregateFunction[aggregates.size()];
+        this.slots = new int[aggregates.size()];
+        this.products = new TupleCompiler.RowFunction[aggregates.size()];
+        int next = 1;
+        for (int i = 0; i < aggregates.size(); i++){
+            functions[i] = aggregates.get(i).getFunction();
+            if (functions[i] != AggregateFunction.COUNT){
+                slots[i] = next++;
+                products[i] = TupleCompiler.compileProduct(child.getVariableList(), aggregates.get(i).getProductTerms());
+            }
+        }
+        this.width = next;
     }
 
     /**
      * Get next tuple output
-     * @return next tuple output
+     * @return next tuple output, or null if all groups are returned
      */
     @Override
     public Tuple getNextTuple() {
-        //initialize variables
-        Tuple childNextTuple = child.getNextTuple();
-        List<Term> currentGroup = new ArrayList<>();
-        boolean findNextOutput=false;
-        //this is used to indicate whether there is no projection
-        //if no projection, simply calculate total sum and return the sum
-        // in other words:"countAll".
-        boolean countAll = false;
-        if (projectVariables.size()==0){
-            countAll = true;
-        }
-
-        while (childNextTuple!=null){
-            List<Term> outputTerms = new ArrayList<>();
-            List<Term> projectTerms = new ArrayList<>();
-            List<Term> tupleTerms = childNextTuple.getTerms();
-            Map<String, Term> relationTerm = new HashMap<>();
-            for (int i = 0; i < childVariableMap.size();i++){
-                relationTerm.put(childVariableMap.get(i),tupleTerms.get(i));
+        if (output == null){
+            aggregate();
+        }
+        if (!output.hasNext()){
+            return null;
+        }
+        Map.Entry<List<Term>,long[]> group = output.next();
+        return outputTuple(group.getKey(), group.getValue());
+    }
+
+    /**
+     * build the output tuple of a group
+     * @param group the values of head variables
+     * @param state the state of the group
+     * @return the group's values followed by its aggregates
+     */
+    protected Tuple outputTuple(List<Term> group, long[] state){
+        List<Term> outputTerms = new ArrayList<>(group);
+        //aggregates are output as integers, so sums wrap around like integer additions
+        for (int i = 0; i < functions.length; i++){
+            long value;
+            switch (functions[i]){
+                case COUNT:
+                    value = state[0];
+                    break;
+                case AVG:
+                    value = Math.floorDiv(state[slots[i]], state[0]);
+                    break;
+                default:
+                    value = state[slots[i]];
+                    break;
             }
-            if (projectVariables.size()!=0){
-                for (String variable:projectVariables){
-                    projectTerms.add(relationTerm.get(variable));
+            outputTerms.add(new IntegerConstant((int) value));
+        }
+        return new Tuple("",outputTerms);
+    }
+
+    /**
+     * read all child's tuples and update the state of each tuple's group
+     */
+    private void aggregate(){
+        int rows = 0;
+        Tuple childNextTuple = child.getNextTuple();
+        while (childNextTuple!=null && (threads == 1 || rows < PARALLEL_THRESHOLD)){
+            add(groupStates, childNextTuple.getTerms());
+            rows++;
+            childNextTuple = child.getNextTuple();
+        }
+        if (childNextTuple != null){
+            mergeNewGroups(aggregateParallel(childNextTuple));
+        }
+        output = groupStates.entrySet().iterator();
+    }
+
+    /**
+     * merge the partial states of the workers into the states of the groups, groups that are not
+     * in the states yet are added in the order of the row where they first appear
+     * @param partials partial groups of each worker
+     */
+    private void mergeNewGroups(List<Map<List<Term>,PartialGroup>> partials){
+        Map<List<Term>,PartialGroup> newGroups = new HashMap<>();
+        for (Map<List<Term>,PartialGroup> partial: partials){
+            for (Map.Entry<List<Term>,PartialGroup> group: partial.entrySet()){
+                long[] state = groupStates.get(group.getKey());
+                PartialGroup seen = newGroups.get(group.getKey());
+                if (state != null){
+                    merge(state, group.getValue().state);
                 }
-            }
-            //calculate the sum value for this tuple
-            boolean firstTerm = true;
-            Integer sum = 0;
-            for (String variable:sumVariables){
-                //if this is the first term, we do plus, since we can't do multiply on 0
-                if (firstTerm){
-                    firstTerm = false;
-                    //if this variable is a constant, just add it
-                    if (variable.matches("\\d+")){
-                        sum+=Integer.parseInt(variable);
-                    }
-                    //otherwise add the corresponding value
-                    else {
-                        if (relationTerm.get(variable) instanceof IntegerConstant){
-                            sum += ((IntegerConstant) relationTerm.get(variable)).getValue();
-                        }
-                    }
+                else if (seen == null){
+                    newGroups.put(group.getKey(), group.getValue());
+                }
+                else if (group.getValue().firstRow < seen.firstRow){
+                    merge(group.getValue().state, seen.state);
+                    newGroups.put(group.getKey(), group.getValue());
                 }
-                //do multiply on sum
                 else {
-                    if (variable.matches("\\d+")){
-                        sum*=Integer.parseInt(variable);
-                    }
-                    else {
-                        if (relationTerm.get(variable) instanceof IntegerConstant){
-                            sum *= ((IntegerConstant) relationTerm.get(variable)).getValue();
-                        }
-                    }
+                    merge(seen.state, group.getValue().state);
                 }
             }
+        }
+        List<Map.Entry<List<Term>,PartialGroup>> ordered = new ArrayList<>(newGroups.entrySet());
+        ordered.sort(Comparator.comparingLong(group -> group.getValue().firstRow));
+        for (Map.Entry<List<Term>,PartialGroup> group: ordered){
+            groupStates.put(group.getKey(), group.getValue().state);
+        }
+    }
 
-            //if no projection, just add all sum value.
-            if (countAll){
-                groupSum+=sum;
-                childNextTuple = child.getNextTuple();
-                if (childNextTuple==null){
-                    outputTerms.add(new IntegerConstant(groupSum));
-                    return new Tuple("",outputTerms);
-                }
-                continue;
-            }
-            //if target output not found
-            if (!findNextOutput){
-                //if seen before, check next
-                if (checkContains(projectTerms,appearedGroup)){
-                    childNextTuple = child.getNextTuple();
-                }
-                //if this tuple is new, set it to this round's target group
-                //and add sum to groupSum, and get next tuple
-                else {
-                    findNextOutput = true;
-                    appearedGroup.add(projectTerms);
-                    currentGroup = projectTerms;
-                    groupSum += sum;
-                    childNextTuple = child.getNextTuple();
-                }
-                //if no child tuple left
-                if (childNextTuple == null){
-                    //if no unique tuple left, and no target found, it's time to left
-                    if (!findNextOutput) {
-                        return null;
-                    }
-                    //if target found, then the above tuple is the only one in this group,
-                    //just return output
-                    else {
-                        outputTerms.addAll(currentGroup);
-                        outputTerms.add(new IntegerConstant(groupSum));
-                        child.reset();
-                        groupSum = 0;
-                        return new Tuple("",outputTerms);
+    /**
+     * read the rest of child's tuples in batches, and let worker threads build partial states of the batches
+     * @param first the first tuple that is not aggregated yet
+     * @return partial groups of each worker
+     */
+    private List<Map<List<Term>,PartialGroup>> aggregateParallel(Tuple first){
+        //an empty batch tells a worker that no batch is left
+        final Batch last = new Batch(0);
+        final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(threads * 2);
+        //daemon threads, so a failed aggregation does not keep the program running
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sum-aggregate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Map<List<Term>,PartialGroup>>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++){
+                workers.add(pool.submit(() -> {
+                    //a worker takes batches in the order of their rows, so a group's first row is found first
+                    Map<List<Term>,PartialGroup> partial = new HashMap<>();
+                    Batch batch = batches.take();
+                    while (batch != last){
+                        for (int row = 0; row < batch.tuples.size(); row++){
+                            List<Term> tupleTerms = batch.tuples.get(row);
+                            List<Term> group = projection.apply(tupleTerms);
+                            PartialGroup partialGroup = partial.get(group);
+                            if (partialGroup == null){
+                                partialGroup = new PartialGroup(batch.firstRow + row, newState());
+                                partial.put(group, partialGroup);
+                            }
+                            update(partialGroup.state, tupleTerms);
+                        }
+                        batch = batches.take();
                     }
-                }
-                else {
-                    continue;
-                }
+                    return partial;
+                }));
             }
-            else {
-                //check if this tuple is our target and do corresponding operation
-                if (checkEquals(currentGroup,projectTerms)){
-                    groupSum += sum;
-                    childNextTuple = child.getNextTuple();
-                }
-                else {
-                    childNextTuple = child.getNextTuple();
+            long rows = 0;
+            Batch batch = new Batch(rows);
+            Tuple childNextTuple = first;
+            while (childNextTuple!=null){
+                batch.tuples.add(childNextTuple.getTerms());
+                rows++;
+                if (batch.tuples.size() == BATCH_SIZE){
+                    hand(batches, batch, workers);
+                    batch = new Batch(rows);
                 }
-                if (childNextTuple == null){
-                    outputTerms.addAll(currentGroup);
-                    outputTerms.add(new IntegerConstant(groupSum));
-                    child.reset();
-                    groupSum = 0;
-                    return new Tuple("",outputTerms);
+                childNextTuple = child.getNextTuple();
+            }
+            if (!batch.tuples.isEmpty()){
+                hand(batches, batch, workers);
+            }
+            for (int i = 0; i < threads; i++){
+                hand(batches, last, workers);
+            }
+            List<Map<List<Term>,PartialGroup>> partials = new ArrayList<>();
+            for (Future<Map<List<Term>,PartialGroup>> worker: workers){
+                partials.add(worker.get());
+            }
+            return partials;
+        }
+        catch (Exception e){
+            throw new IllegalStateException("sum aggregation failed", e);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * put a batch into the queue of the workers, waiting while the queue is full. A worker only
+     * ends before it takes the last batch if it failed, then its failure is thrown, so the reading
+     * of the child stops instead of waiting for a queue that no worker takes from
+     * @param batches the queue
+     * @param batch the batch
+     * @param workers the workers
+     */
+    private static <T> void hand(BlockingQueue<Batch> batches, Batch batch, List<Future<T>> workers)
+            throws InterruptedException, ExecutionException {
+        do {
+            for (Future<T> worker: workers){
+                if (worker.isDone()){
+                    worker.get();
                 }
             }
+        } while (!batches.offer(batch, 10, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * update the state of a tuple's group with this tuple
+     * @param states states of the groups
+     * @param tupleTerms terms of the tuple
+     */
+    private void add(Map<List<Term>,long[]> states, List<Term> tupleTerms){
+        List<Term> group = projection.apply(tupleTerms);
+        long[] state = states.get(group);
+        if (state == null){
+            state = newState();
+            states.put(group, state);
         }
-        return null;
+        update(state, tupleTerms);
     }
 
     /**
-     * check if the input lists are the same
-     * @param list1 list 1
-     * @param list2 list 2
-     * @return whether they are the same
+     * update the state of a group with a tuple of this group
+     * @param state the state of the group
+     * @param tupleTerms terms of the tuple
      */
-    public boolean checkEquals(List<Term> list1,List<Term>list2){
-        if (list1.size()!=list2.size()){return false;}
-        for (int i = 0;i<list1.size();i++){
-            if (!Objects.equals(list1.get(i).toString(), list2.get(i).toString())){
-                return false;
+    protected void update(long[] state, List<Term> tupleTerms){
+        state[0]++;
+        for (int i = 0; i < functions.length; i++){
+            if (products[i] == null){
+                continue;
+            }
+            int value = products[i].apply(tupleTerms);
+            int slot = slots[i];
+            switch (functions[i]){
+                case MIN:
+                    state[slot] = Math.min(state[slot], value);
+                    break;
+                case MAX:
+                    state[slot] = Math.max(state[slot], value);
+                    break;
+                default:
+                    state[slot] += value;
+                    break;
             }
         }
-        return true;
     }
 
     /**
-     * check if this list contains this target group
-     * @param testObj target group
-     * @param appearedGroup list of groups
-     * @return
+     * create the state of a group that has no tuple yet
+     * @return the state
      */
-    public boolean checkContains(List<Term> testObj,List<List<Term>> appearedGroup){
-        boolean pass;
-        for (List<Term> terms: appearedGroup){
-            pass = true;
-            if (terms.size() != testObj.size()){continue;}
-            for (int i =0;i<terms.size();i++){
-                if (!testObj.get(i).toString().equals(terms.get(i).toString())){
-                    pass = false;
-                }
+    protected long[] newState(){
+        long[] state = new long[width];
+        for (int i = 0; i < functions.length; i++){
+            if (functions[i] == AggregateFunction.MIN){
+                state[slots[i]] = Long.MAX_VALUE;
             }
-            if (pass){
-                return true;
+            else if (functions[i] == AggregateFunction.MAX){
+                state[slots[i]] = Long.MIN_VALUE;
             }
         }
-        return false;
+        return state;
+    }
+
+    /**
+     * merge the partial state of a group into another state of this group
+     * @param state the state that is updated
+     * @param partial the partial state
+     */
+    private void merge(long[] state, long[] partial){
+        state[0] += partial[0];
+        for (int i = 0; i < functions.length; i++){
+            int slot = slots[i];
+            switch (functions[i]){
+                case COUNT:
+                    break;
+                case MIN:
+                    state[slot] = Math.min(state[slot], partial[slot]);
+                    break;
+                case MAX:
+                    state[slot] = Math.max(state[slot], partial[slot]);
+                    break;
+                default:
+                    state[slot] += partial[slot];
+                    break;
+            }
+        }
+    }
+
+    /**
+     * get the child operators of this operator
+     * @return list of child operators
+     */
+    @Override
+    public List<Operator> getChildren(){
+        return Collections.singletonList(child);
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the group variables and the aggregates
+     */
+    @Override
+    public String describe(){
+        return getClass().getSimpleName().replaceAll("Operator$", "") + " " + head + (threads > 1 ? ", " + threads + " threads" : "");
     }
 
     /**
@@ -224,5 +382,33 @@ public class SumOperator extends Operator{
     @Override
     public void reset() {
         child.reset();
+        groupStates.clear();
+        output = null;
+    }
+
+    /**
+     * tuples handed to a worker thread at once, with the row number of the first of them
+     */
+    private static class Batch{
+        private final long firstRow;
+        private final List<List<Term>> tuples;
+
+        private Batch(long firstRow){
+            this.firstRow = firstRow;
+            this.tuples = new ArrayList<>(BATCH_SIZE);
+        }
+    }
+
+    /**
+     * the partial state of a group built by a worker thread, with the row where the group first appears
+     */
+    private static class PartialGroup{
+        private final long firstRow;
+        private final long[] state;
+
+        private PartialGroup(long firstRow, long[] state){
+            this.firstRow = firstRow;
+            this.state = state;
+        }
     }
 }
@@ -1,6 +1,8 @@
 package ed.inf.adbs.minibase.operator;
 
 import ed.inf.adbs.minibase.Utils;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
 import ed.inf.adbs.minibase.base.Term;
 import java.util.List;
 
@@ -45,4 +47,23 @@ public class Tuple {
     public String toString(){
         return Utils.join(terms, ", ");
     }
+
+    /**
+     * compare 2 constant terms by their value, integers are ordered before strings
+     * @param a term a
+     * @param b term b
+     * @return negative, zero or positive if a is less than, equal to or greater than b
+     */
+    public static int compareTerms(Term a, Term b){
+        if (a instanceof IntegerConstant){
+            if (b instanceof IntegerConstant){
+                return Integer.compare(((IntegerConstant) a).getValue(), ((IntegerConstant) b).getValue());
+            }
+            return -1;
+        }
+        if (b instanceof IntegerConstant){
+            return 1;
+        }
+        return ((StringConstant) a).getValue().compareTo(((StringConstant) b).getValue());
+    }
 }
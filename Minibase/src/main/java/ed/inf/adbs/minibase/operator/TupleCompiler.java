@@ -0,0 +1,338 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * TupleCompiler turns the comparisons and projections of an operator into small functions when the plan
+ * is built, so they are not interpreted again for every tuple. Every variable is replaced by its position
+ * in the tuple, every comparison gets its own function for its operator, and a comparison with an integer
+ * constant compares ints directly. A list of comparisons becomes a chain of these functions.
+ * The compiled functions keep no state, so they can be shared by threads.
+ * A null variable table, which is the variable table of a join with an empty side, is treated as empty.
+ */
+public class TupleCompiler {
+
+    /**
+     * compiled check of the terms of a tuple
+     */
+    public interface RowPredicate{
+        boolean test(List<Term> terms);
+    }
+
+    /**
+     * compiled check of the terms of a left tuple and a right tuple
+     */
+    public interface PairPredicate{
+        boolean test(List<Term> left, List<Term> right);
+    }
+
+    /**
+     * compiled projection of the terms of a tuple
+     */
+    public interface Projection{
+        List<Term> apply(List<Term> terms);
+    }
+
+    /**
+     * compiled calculation of an integer from the terms of a tuple
+     */
+    public interface RowFunction{
+        int apply(List<Term> terms);
+    }
+
+    /**
+     * reads the value of a variable from a left tuple or a right tuple
+     */
+    private interface Column{
+        Term get(List<Term> left, List<Term> right);
+    }
+
+    /**
+     * compile the restrictions of a select operator
+     * @param variables the variable table of input tuples
+     * @param comparisonAtoms the restrictions
+     * @return check of input terms
+     */
+    public static RowPredicate compileSelection(List<String> variables, List<ComparisonAtom> comparisonAtoms){
+        final PairPredicate predicate = compileConditions(comparisonAtoms, orEmpty(variables), new ArrayList<>(), new ArrayList<>());
+        return terms -> predicate.test(terms, terms);
+    }
+
+    /**
+     * compile the conditions of a join. A variable is first looked up in left relation,
+     * then in right relation by its reformatted name, and then by its original name.
+     * @param leftVariables left relation's reformatted variables
+     * @param rightVariables right relation's reformatted variables
+     * @param rightOriginalVariables right relation's original variables
+     * @param comparisonAtoms the join conditions
+     * @return check of a left tuple's terms and a right tuple's terms
+     */
+    public static PairPredicate compileJoin(List<String> leftVariables, List<String> rightVariables, List<String> rightOriginalVariables,
+                                            List<ComparisonAtom> comparisonAtoms){
+        return compileConditions(comparisonAtoms, orEmpty(leftVariables), orEmpty(rightVariables), orEmpty(rightOriginalVariables));
+    }
+
+    /**
+     * compile a projection from one variable table to another, variables that are not in the input are left out
+     * @param inputVariables variable table of input tuples
+     * @param outputVariables variable table of output tuples
+     * @return the projection
+     */
+    public static Projection compileProjection(List<String> inputVariables, List<String> outputVariables){
+        inputVariables = orEmpty(inputVariables);
+        List<Integer> found = new ArrayList<>();
+        for (String variable: outputVariables){
+            if (inputVariables.contains(variable)){
+                found.add(inputVariables.lastIndexOf(variable));
+            }
+        }
+        final int[] positions = new int[found.size()];
+        for (int i = 0; i < positions.length; i++){
+            positions[i] = found.get(i);
+        }
+        return terms -> {
+            List<Term> output = new ArrayList<>(positions.length);
+            for (int position: positions){
+                output.add(terms.get(position));
+            }
+            return output;
+        };
+    }
+
+    /**
+     * compile the product of SUM terms, integer constants are used as they are. A variable that is not an integer
+     * in a tuple counts as 0 if it is the first term of the product, otherwise it is left out of the product
+     * @param variables variable table of input tuples
+     * @param productTerms terms of the product
+     * @return calculation of the product
+     */
+    public static RowFunction compileProduct(List<String> variables, List<Term> productTerms){
+        variables = orEmpty(variables);
+        RowFunction product = null;
+        for (Term term: productTerms){
+            RowFunction factor;
+            final int missing = product == null ? 0 : 1;
+            if (term instanceof IntegerConstant){
+                final int value = ((IntegerConstant) term).getValue();
+                factor = terms -> value;
+            }
+            else {
+                final int position = variables.lastIndexOf(term.toString());
+                if (position < 0){
+                    factor = terms -> missing;
+                }
+                else {
+                    factor = terms -> {
+                        Term value = terms.get(position);
+                        return value instanceof IntegerConstant ? ((IntegerConstant) value).getValue() : missing;
+                    };
+                }
+            }
+            if (product == null){
+                product = factor;
+            }
+            else {
+                final RowFunction left = product;
+                final RowFunction right = factor;
+                product = terms -> left.apply(terms) * right.apply(terms);
+            }
+        }
+        return product == null ? terms -> 0 : product;
+    }
+
+    /**
+     * compile a list of comparisons into a chain that checks them in order
+     */
+    private static PairPredicate compileConditions(List<ComparisonAtom> comparisonAtoms, List<String> leftVariables,
+                                                   List<String> rightVariables, List<String> rightOriginalVariables){
+        PairPredicate chain = null;
+        for (int i = comparisonAtoms.size() - 1; i >= 0; i--){
+            ComparisonAtom compare = comparisonAtoms.get(i);
+            Term term1 = compare.getTerm1();
+            Term term2 = compare.getTerm2();
+            ComparisonOperator op = compare.getOp();
+            //keep the constant on the right side
+            if (term1 instanceof Constant && !(term2 instanceof Constant)){
+                term1 = compare.getTerm2();
+                term2 = compare.getTerm1();
+                op = flip(op);
+            }
+            PairPredicate current;
+            if (term1 instanceof Constant){
+                final boolean result = compareTerms(op, term1, term2);
+                current = (left, right) -> result;
+            }
+            else {
+                Column column1 = resolve(term1.toString(), leftVariables, rightVariables, rightOriginalVariables);
+                if (column1 == null){
+                    current = (left, right) -> false;
+                }
+                else if (term2 instanceof IntegerConstant){
+                    current = compareInteger(column1, op, ((IntegerConstant) term2).getValue());
+                }
+                else if (term2 instanceof StringConstant){
+                    current = compareString(column1, op, ((StringConstant) term2).getValue());
+                }
+                else {
+                    Column column2 = resolve(term2.toString(), leftVariables, rightVariables, rightOriginalVariables);
+                    current = column2 == null ? (left, right) -> false : compareColumns(column1, op, column2);
+                }
+            }
+            if (chain == null){
+                chain = current;
+            }
+            else {
+                final PairPredicate first = current;
+                final PairPredicate rest = chain;
+                chain = (left, right) -> first.test(left, right) && rest.test(left, right);
+            }
+        }
+        return chain == null ? (left, right) -> true : chain;
+    }
+
+    /**
+     * find the position of a variable
+     * @return reader of this variable's value, or null if the variable is in neither tuple
+     */
+    private static Column resolve(String variable, List<String> leftVariables, List<String> rightVariables, List<String> rightOriginalVariables){
+        final int position;
+        if (leftVariables.contains(variable)){
+            position = leftVariables.lastIndexOf(variable);
+            return (left, right) -> left.get(position);
+        }
+        if (rightVariables.contains(variable)){
+            position = rightVariables.lastIndexOf(variable);
+        }
+        else if (rightOriginalVariables.contains(variable)){
+            position = rightOriginalVariables.lastIndexOf(variable);
+        }
+        else {
+            return null;
+        }
+        return (left, right) -> right.get(position);
+    }
+
+    /**
+     * compile "column op value" for an integer constant
+     */
+    private static PairPredicate compareInteger(final Column column, ComparisonOperator op, final int value){
+        switch (op){
+            case EQ:
+                return (left, right) -> {
+                    Term term = column.get(left, right);
+                    return term instanceof IntegerConstant && ((IntegerConstant) term).getValue() == value;
+                };
+            case NEQ:
+                return (left, right) -> {
+                    Term term = column.get(left, right);
+                    return term instanceof IntegerConstant && ((IntegerConstant) term).getValue() != value;
+                };
+            case GT:
+                return (left, right) -> {
+                    Term term = column.get(left, right);
+                    return term instanceof IntegerConstant && ((IntegerConstant) term).getValue() > value;
+                };
+            case GEQ:
+                return (left, right) -> {
+                    Term term = column.get(left, right);
+                    return term instanceof IntegerConstant && ((IntegerConstant) term).getValue() >= value;
+                };
+            case LT:
+                return (left, right) -> {
+                    Term term = column.get(left, right);
+                    return term instanceof IntegerConstant && ((IntegerConstant) term).getValue() < value;
+                };
+            default:
+                return (left, right) -> {
+                    Term term = column.get(left, right);
+                    return term instanceof IntegerConstant && ((IntegerConstant) term).getValue() <= value;
+                };
+        }
+    }
+
+    /**
+     * compile "column op value" for a string constant
+     */
+    private static PairPredicate compareString(final Column column, ComparisonOperator op, final String value){
+        if (op == ComparisonOperator.EQ){
+            return (left, right) -> {
+                Term term = column.get(left, right);
+                return term instanceof StringConstant && ((StringConstant) term).getValue().equals(value);
+            };
+        }
+        final IntPredicate test = resultTest(op);
+        return (left, right) -> {
+            Term term = column.get(left, right);
+            return term instanceof StringConstant && test.test(((StringConstant) term).getValue().compareTo(value));
+        };
+    }
+
+    /**
+     * compile "column1 op column2"
+     */
+    private static PairPredicate compareColumns(final Column column1, ComparisonOperator op, final Column column2){
+        final IntPredicate test = resultTest(op);
+        return (left, right) -> {
+            Term term1 = column1.get(left, right);
+            Term term2 = column2.get(left, right);
+            return term1 != null && term2 != null && term1.getClass() == term2.getClass() && test.test(Tuple.compareTerms(term1, term2));
+        };
+    }
+
+    /**
+     * compare 2 constants by the operator, constants of different types never satisfy a comparison
+     * @param op compare operator
+     * @param left left term
+     * @param right right term
+     * @return compare result
+     */
+    public static boolean compareTerms(ComparisonOperator op, Term left, Term right){
+        if (left == null || right == null || left.getClass() != right.getClass()){
+            return false;
+        }
+        return resultTest(op).test(Tuple.compareTerms(left, right));
+    }
+
+    /**
+     * get the check of a compare result for an operator
+     * @param op compare operator
+     * @return check of the result of compareTerms
+     */
+    private static IntPredicate resultTest(ComparisonOperator op){
+        switch (op){
+            case EQ: return result -> result == 0;
+            case NEQ: return result -> result != 0;
+            case GT: return result -> result > 0;
+            case GEQ: return result -> result >= 0;
+            case LT: return result -> result < 0;
+            default: return result -> result <= 0;
+        }
+    }
+
+    /**
+     * @return the variable table, or an empty table if it is null
+     */
+    private static List<String> orEmpty(List<String> variables){
+        return variables == null ? Collections.<String>emptyList() : variables;
+    }
+
+    /**
+     * flip an operator so "a op b" becomes "b op a"
+     * @param op the operator
+     * @return flipped operator
+     */
+    static ComparisonOperator flip(ComparisonOperator op){
+        switch (op){
+            case LT: return ComparisonOperator.GT;
+            case LEQ: return ComparisonOperator.GEQ;
+            case GT: return ComparisonOperator.LT;
+            case GEQ: return ComparisonOperator.LEQ;
+            default: return op;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ed.inf.adbs.minibase.operator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TupleListOperator returns tuples that are already stored in memory one by one,
+ * it is used when the planner has read and processed a relation before the join.
+ */
+public class TupleListOperator extends Operator{
+    //stored tuples
+    private final List<Tuple> tuples;
+    //position of the next output tuple
+    private int position;
+
+    /**
+     * constructor for tuple list operator
+     * @param variableList the variables of the stored tuples
+     * @param tuples stored tuples
+     */
+    public TupleListOperator(List<String> variableList, List<Tuple> tuples){
+        this.variableList = new ArrayList<>(variableList);
+        this.tuples = tuples;
+        this.position = 0;
+    }
+
+    /**
+     * get next stored tuple
+     * @return next tuple, or null if all tuples have been returned
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (position < tuples.size()){
+            return tuples.get(position++);
+        }
+        return null;
+    }
+
+    /**
+     * get the number of stored tuples
+     * @return number of tuples
+     */
+    public int size(){
+        return tuples.size();
+    }
+
+    /**
+     * describe this operator in an explained query plan
+     * @return the variables and the number of stored tuples
+     */
+    @Override
+    public String describe(){
+        return "TupleList " + variableList + ", " + tuples.size() + " tuples";
+    }
+
+    /**
+     * reset this operator to initial state
+     */
+    @Override
+    public void reset() {
+        position = 0;
+    }
+}
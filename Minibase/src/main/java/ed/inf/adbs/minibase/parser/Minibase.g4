@@ -6,13 +6,17 @@ query
 
 head
     : ID_UPPER '(' ')'
-    | ID_UPPER '(' sumagg ')'
+    | ID_UPPER '(' sumagg (',' sumagg)* ')'
     | ID_UPPER '(' variable (',' variable)*  ')'
-    | ID_UPPER '(' variable (',' variable)* ',' sumagg ')'
+    | ID_UPPER '(' variable (',' variable)* (',' sumagg)+ ')'
     ;
 
 sumagg
-    : 'SUM' '(' term ('*' term)* ')'
+    : aggFunction '(' term ('*' term)* ')'
+    ;
+
+aggFunction
+    : 'SUM' | 'COUNT' | 'MIN' | 'MAX' | 'AVG'
     ;
 
 body
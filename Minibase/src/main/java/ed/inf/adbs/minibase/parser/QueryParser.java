@@ -49,17 +49,15 @@ public class QueryParser {
                     .map(v -> v.accept(variableVisitor))
                     .collect(toList());
             
-            SumAggregate headSumAggregate = null;
-            if (ctx.head().sumagg() != null) {                
-                TermVisitor termVisitor = new TermVisitor();
-                List<Term> productTerms = ctx.head().sumagg().term()
-                        .stream()
-                        .map(v -> v.accept(termVisitor))
-                        .collect(toList());
-                headSumAggregate = new SumAggregate(productTerms);
-            }
+            TermVisitor termVisitor = new TermVisitor();
+            List<SumAggregate> headAggregates = ctx.head().sumagg()
+                    .stream()
+                    .map(a -> new SumAggregate(
+                            AggregateFunction.fromString(a.aggFunction().getText()),
+                            a.term().stream().map(t -> t.accept(termVisitor)).collect(toList())))
+                    .collect(toList());
 
-            Head head = new Head(headName, headVariables, headSumAggregate);
+            Head head = new Head(headName, headVariables, headAggregates);
 
             return new Query(head, body);
         }
@@ -48,6 +48,18 @@ public class MinibaseBaseListener implements MinibaseListener {
 	 * <p>The default implementation does nothing.</p>
 	 */
 	@Override public void exitSumagg(MinibaseParser.SumaggContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void enterAggFunction(MinibaseParser.AggFunctionContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void exitAggFunction(MinibaseParser.AggFunctionContext ctx) { }
 	/**
 	 * {@inheritDoc}
 	 *
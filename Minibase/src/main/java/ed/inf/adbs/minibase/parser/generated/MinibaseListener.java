@@ -37,6 +37,16 @@ public interface MinibaseListener extends ParseTreeListener {
 	 * @param ctx the parse tree
 	 */
 	void exitSumagg(MinibaseParser.SumaggContext ctx);
+	/**
+	 * Enter a parse tree produced by {@link MinibaseParser#aggFunction}.
+	 * @param ctx the parse tree
+	 */
+	void enterAggFunction(MinibaseParser.AggFunctionContext ctx);
+	/**
+	 * Exit a parse tree produced by {@link MinibaseParser#aggFunction}.
+	 * @param ctx the parse tree
+	 */
+	void exitAggFunction(MinibaseParser.AggFunctionContext ctx);
 	/**
 	 * Enter a parse tree produced by {@link MinibaseParser#body}.
 	 * @param ctx the parse tree
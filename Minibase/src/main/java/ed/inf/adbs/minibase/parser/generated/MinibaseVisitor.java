@@ -28,6 +28,12 @@ public interface MinibaseVisitor<T> extends ParseTreeVisitor<T> {
 	 * @return the visitor result
 	 */
 	T visitSumagg(MinibaseParser.SumaggContext ctx);
+	/**
+	 * Visit a parse tree produced by {@link MinibaseParser#aggFunction}.
+	 * @param ctx the parse tree
+	 * @return the visitor result
+	 */
+	T visitAggFunction(MinibaseParser.AggFunctionContext ctx);
 	/**
 	 * Visit a parse tree produced by {@link MinibaseParser#body}.
 	 * @param ctx the parse tree
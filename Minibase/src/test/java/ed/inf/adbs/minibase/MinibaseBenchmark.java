@@ -0,0 +1,541 @@
+package ed.inf.adbs.minibase;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.operator.*;
+import ed.inf.adbs.minibase.parser.QueryParser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks for query plans, run by hand with
+ * java -cp target/classes:target/test-classes:antlr4-runtime.jar ed.inf.adbs.minibase.MinibaseBenchmark name [args]
+ * Each benchmark generates random data in a temporary database directory,
+ * and prints the output size and running time of each plan.
+ */
+public class MinibaseBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String name = args.length > 0 ? args[0] : "triangle";
+        switch (name){
+            case "triangle":
+                triangle(intArg(args, 1, 2000), intArg(args, 2, 200));
+                break;
+            case "hashjoin":
+                hashJoin(intArg(args, 1, 200000), intArg(args, 2, 4));
+                break;
+            case "runtimefilter":
+                runtimeFilter(intArg(args, 1, 40000));
+                break;
+            case "joinloop":
+                joinLoop(intArg(args, 1, 3000));
+                break;
+            case "select":
+                select(intArg(args, 1, 1000000));
+                break;
+            case "selectalloc":
+                selectAllocation(intArg(args, 1, 200000), intArg(args, 2, 20));
+                break;
+            case "adaptiveselect":
+                adaptiveSelect(intArg(args, 1, 200000), intArg(args, 2, 20));
+                break;
+            case "distinct":
+                distinct(intArg(args, 1, 2000000), intArg(args, 2, 0));
+                break;
+            case "groupby":
+                groupBy(intArg(args, 1, 200000), intArg(args, 2, 1000), intArg(args, 3, 1));
+                break;
+            case "aggregates":
+                aggregates(intArg(args, 1, 200000), intArg(args, 2, 1000));
+                break;
+            case "eager":
+                eagerAggregation(intArg(args, 1, 20000), intArg(args, 2, 100));
+                break;
+            case "ordered":
+                orderedAggregation(intArg(args, 1, 2000000), intArg(args, 2, 4));
+                break;
+            case "joinorder":
+                joinOrder(intArg(args, 1, 20000), intArg(args, 2, 10));
+                break;
+            case "bushy":
+                bushy(intArg(args, 1, 20000), intArg(args, 2, 200));
+                break;
+            case "crossproduct":
+                crossProduct(intArg(args, 1, 3000));
+                break;
+            default:
+                System.err.println("Unknown benchmark: " + name);
+        }
+    }
+
+    /**
+     * compare the binary join plan with leapfrog triejoin on the triangle query
+     * @param edges number of edges
+     * @param nodes number of nodes
+     */
+    private static void triangle(int edges, int nodes) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "E", "int int", edges, () -> random.nextInt(nodes) + ", " + random.nextInt(nodes));
+        Catalog.getInstance().initialize(db.getPath());
+        String query = "Q(x, y, z) :- E(x, y), E(y, z), E(z, x)";
+        System.out.println("triangle query, " + edges + " edges over " + nodes + " nodes");
+        QueryBuilder.useWorstCaseOptimalJoin = false;
+        run("binary join plan", query);
+        QueryBuilder.useWorstCaseOptimalJoin = true;
+        run("leapfrog triejoin", query);
+    }
+
+    /**
+     * compare single threaded and parallel hash join on an equi-join of 2 relations
+     * @param rows number of rows of each relation
+     * @param threads number of threads of the parallel run
+     */
+    private static void hashJoin(int rows, int threads) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "R", "int int", rows, () -> random.nextInt(rows) + ", " + random.nextInt(100));
+        writeRelation(db, "S", "int int", rows, () -> random.nextInt(rows) + ", " + random.nextInt(100));
+        Catalog.getInstance().initialize(db.getPath());
+        String query = "Q(SUM(y * z)) :- R(x, y), S(x, z)";
+        System.out.println("equi-join, " + rows + " rows in each relation");
+        QueryBuilder.joinThreads = 1;
+        run("hash join, 1 thread", query);
+        QueryBuilder.joinThreads = threads;
+        run("hash join, " + threads + " threads", query);
+    }
+
+    /**
+     * compare a hash join with and without runtime filters, when few probe rows have a match
+     * @param rows number of rows of the probe relation
+     */
+    private static void runtimeFilter(int rows) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "R", "int int int string", rows, () -> random.nextInt(rows) + ", " + random.nextInt(100) + ", " + random.nextInt(1000) + ", 'r" + random.nextInt(1000) + "'");
+        writeRelation(db, "S", "int int", rows / 10, () -> random.nextInt(rows) + ", " + random.nextInt(100));
+        Catalog.getInstance().initialize(db.getPath());
+        String query = "Q(x, y, z) :- R(x, y, w, s), S(x, z), z = 7";
+        System.out.println("selective equi-join, " + rows + " probe rows");
+        QueryBuilder.useRuntimeFilters = false;
+        run("without runtime filter", query);
+        QueryBuilder.useRuntimeFilters = true;
+        Operator root = run("with runtime filter", query);
+        printRuntimeFilters(root);
+    }
+
+    /**
+     * print the runtime filters published by the hash joins of a plan
+     * @param operator root of the plan
+     */
+    private static void printRuntimeFilters(Operator operator){
+        if (operator instanceof HashJoinOperator){
+            for (RuntimeFilter filter: ((HashJoinOperator) operator).getRuntimeFilters()){
+                System.out.println(filter);
+            }
+        }
+        for (Operator child: operator.getChildren()){
+            printRuntimeFilters(child);
+        }
+    }
+
+    /**
+     * measure the pair checking loop of the nested loop join, with a join condition that no other join can use
+     * @param rows number of rows of each relation
+     */
+    private static void joinLoop(int rows) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "R", "int int", rows, () -> random.nextInt(rows) + ", 1");
+        writeRelation(db, "S", "int int", rows, () -> random.nextInt(rows) + ", " + (random.nextInt(1000) == 0 ? 2 : 1));
+        Catalog.getInstance().initialize(db.getPath());
+        String query = "Q(SUM(1)) :- R(x, y), S(z, w), y != w";
+        System.out.println("nested loop join, " + rows + " x " + rows + " pairs");
+        for (int i = 1; i <= 3; i++){
+            run("run " + i, query);
+        }
+    }
+
+    /**
+     * measure a selection with several restrictions on one relation
+     * @param rows number of rows
+     */
+    private static void select(int rows) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "R", "int int int string", rows, () -> random.nextInt(1000) + ", " + random.nextInt(1000) + ", " + random.nextInt(1000) + ", 'r" + (char) ('a' + random.nextInt(10)) + "'");
+        Catalog.getInstance().initialize(db.getPath());
+        String query = "Q(SUM(1)) :- R(x, y, z, s), x > 10, y <= 990, z != 5, s != 'rd', x < y";
+        System.out.println("selection, " + rows + " rows");
+        for (int i = 1; i <= 3; i++){
+            run("run " + i, query);
+        }
+    }
+
+    /**
+     * measure the bytes allocated by a select operator per input tuple, when its input is already in memory
+     * @param rows number of input tuples
+     * @param passes number of passes over the input, the first half warm up the JIT
+     */
+    private static void selectAllocation(int rows, int passes){
+        List<Tuple> tuples = randomTuples(rows);
+        List<ComparisonAtom> comparisons = comparisonsOf("Q(x) :- R(x, y, s), x > 10, y <= 990, s != 'rd', x < y");
+        Operator select = new SelectOperator(new TupleListOperator(Arrays.asList("x", "y", "s"), tuples), comparisons);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        System.out.println("select over " + rows + " in-memory tuples");
+        for (int pass = 1; pass <= passes; pass++){
+            select.reset();
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            long output = 0;
+            while (select.getNextTuple() != null){
+                output++;
+            }
+            long nanos = System.nanoTime() - start;
+            bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+            if (pass > passes / 2){
+                System.out.printf("pass %d: %d rows, %.1f ns/tuple, %.3f bytes/tuple%n", pass, output, (double) nanos / rows, (double) bytes / rows);
+            }
+        }
+    }
+
+    /**
+     * compare a select operator that checks its restrictions in query order with an adaptive one,
+     * the restrictions are written from the least selective to the most selective
+     * @param rows number of input tuples
+     * @param passes number of passes over the input
+     */
+    private static void adaptiveSelect(int rows, int passes){
+        List<Tuple> tuples = randomTuples(rows);
+        List<ComparisonAtom> comparisons = comparisonsOf("Q(x) :- R(x, y, s), s != 'rd', x < y, y > 100, x = 7");
+        System.out.println("select over " + rows + " in-memory tuples, restrictions " + comparisons);
+        for (boolean adaptive: new boolean[]{false, true}){
+            SelectOperator select = new SelectOperator(new TupleListOperator(Arrays.asList("x", "y", "s"), tuples), comparisons, adaptive);
+            long start = 0;
+            long output = 0;
+            for (int pass = 1; pass <= passes; pass++){
+                if (pass == passes / 2 + 1){
+                    start = System.nanoTime();
+                    output = 0;
+                }
+                select.reset();
+                while (select.getNextTuple() != null){
+                    output++;
+                }
+            }
+            double nanos = (double) (System.nanoTime() - start) / (passes - passes / 2) / rows;
+            System.out.printf("%s: %d rows, %.1f ns/tuple, order %s%n", adaptive ? "adaptive" : "query order", output, nanos, select.getStatistics());
+        }
+    }
+
+    /**
+     * project generated tuples of R(x, y, s) to Q(x, y, s), where half of the rows are duplicates
+     * of earlier rows, and measure the time of duplicate elimination. The input is generated while
+     * it is read, so only the appeared tuples of the projection take memory
+     * @param rows number of input tuples
+     * @param budgetMegabytes memory budget of appeared tuples, 0 for the default budget
+     */
+    private static void distinct(final int rows, int budgetMegabytes){
+        Operator generator = new Operator() {
+            private int next;
+
+            {
+                variableList = Arrays.asList("x", "y", "s");
+            }
+
+            @Override
+            public Tuple getNextTuple() {
+                if (next >= rows){
+                    return null;
+                }
+                int row = next % 2 == 0 ? next : next - 1;
+                next++;
+                return new Tuple("R", Arrays.<Term>asList(new IntegerConstant(row), new IntegerConstant(row % 1000),
+                        new StringConstant("r" + (char) ('a' + row % 26))));
+            }
+
+            @Override
+            public void reset() {
+                next = 0;
+            }
+        };
+        long budget = budgetMegabytes == 0 ? SpillingDistinct.DEFAULT_MEMORY_BUDGET : budgetMegabytes * 1024L * 1024;
+        Head head = new Head("Q", Arrays.asList(new Variable("x"), new Variable("y"), new Variable("s")), (SumAggregate) null);
+        Operator project = new ProjectOperator(generator, head, budget);
+        System.out.println("distinct over " + rows + " generated tuples, memory budget " + budget / 1024 / 1024 + " MB");
+        for (int pass = 1; pass <= 3; pass++){
+            project.reset();
+            long start = System.nanoTime();
+            long output = 0;
+            while (project.getNextTuple() != null){
+                output++;
+            }
+            System.out.printf("pass %d: %d distinct rows, %d ms%n", pass, output, (System.nanoTime() - start) / 1000000);
+        }
+    }
+
+    /**
+     * group by query Q(x, SUM(y * z)) :- R(x, y, z) with a given number of groups
+     * @param rows number of tuples of R
+     * @param groups number of distinct values of x
+     * @param threads number of worker threads of the aggregation
+     */
+    private static void groupBy(int rows, int groups, int threads) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "R", "int int int", rows, () -> random.nextInt(groups) + ", " + random.nextInt(1000) + ", " + random.nextInt(1000));
+        Catalog.getInstance().initialize(db.getPath());
+        QueryBuilder.aggregateThreads = threads;
+        System.out.println("Q(x, SUM(y * z)) :- R(x, y, z), " + rows + " rows, " + groups + " groups, " + threads + " threads");
+        for (int i = 1; i <= 3; i++){
+            run("run " + i, "Q(x, SUM(y * z)) :- R(x, y, z)");
+        }
+    }
+
+    /**
+     * compare 3 queries that each compute one aggregate of a join with 1 query that computes all 3 in one pass
+     * @param rows number of tuples of R and of S
+     * @param groups number of distinct values of x
+     */
+    private static void aggregates(int rows, int groups) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "R", "int int", rows, () -> random.nextInt(groups) + ", " + random.nextInt(rows));
+        writeRelation(db, "S", "int int", rows, () -> random.nextInt(rows) + ", " + random.nextInt(1000));
+        Catalog.getInstance().initialize(db.getPath());
+        System.out.println("R(x, y), S(y, z), " + rows + " rows each, " + groups + " groups");
+        for (int i = 1; i <= 3; i++){
+            long start = System.nanoTime();
+            run("  SUM", "Q(x, SUM(z)) :- R(x, y), S(y, z)");
+            run("  COUNT", "Q(x, COUNT(z)) :- R(x, y), S(y, z)");
+            run("  MAX", "Q(x, MAX(z)) :- R(x, y), S(y, z)");
+            System.out.println("run " + i + ", 3 queries: " + (System.nanoTime() - start) / 1000000 + " ms");
+            run("run " + i + ", 1 query", "Q(x, SUM(z), COUNT(z), MAX(z)) :- R(x, y), S(y, z)");
+        }
+    }
+
+    /**
+     * Q(x, SUM(t), COUNT(y)) :- R(x, y), S(x, t) with and without aggregating R and S before the join
+     * @param rows number of tuples of R and of S
+     * @param groups number of distinct values of x, each x joins (rows / groups)^2 pairs
+     */
+    private static void eagerAggregation(int rows, int groups) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "R", "int int", rows, () -> random.nextInt(groups) + ", " + random.nextInt(1000));
+        writeRelation(db, "S", "int int", rows, () -> random.nextInt(groups) + ", " + random.nextInt(1000));
+        Catalog.getInstance().initialize(db.getPath());
+        String query = "Q(x, SUM(t), COUNT(y)) :- R(x, y), S(x, t)";
+        System.out.println(query + ", " + rows + " rows each, " + groups + " groups");
+        for (boolean eager: new boolean[]{false, true}){
+            QueryBuilder.useEagerAggregation = eager;
+            for (int i = 1; i <= 3; i++){
+                run((eager ? "eager" : "join first") + " run " + i, query);
+            }
+        }
+    }
+
+    /**
+     * Q(x, t) :- R(x, y), S(y, z), T(z, t) in the query's order and in the order chosen by estimated cost,
+     * R and S share few values of y so joining them first has a large result, while T is small
+     * @param rows number of tuples of R and of S
+     * @param small number of tuples of T
+     */
+    private static void joinOrder(int rows, int small) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "R", "int int", rows, () -> random.nextInt(rows) + ", " + random.nextInt(1000));
+        writeRelation(db, "S", "int int", rows, () -> random.nextInt(1000) + ", " + random.nextInt(rows));
+        writeRelation(db, "T", "int int", small, () -> random.nextInt(rows) + ", " + random.nextInt(1000));
+        Catalog.getInstance().initialize(db.getPath());
+        //without semi-join reduction, which joins acyclic queries in the order of their join tree
+        QueryBuilder.useSemiJoinReduction = false;
+        String query = "Q(x, t) :- R(x, y), S(y, z), T(z, t)";
+        System.out.println(query + ", " + rows + " rows of R and S, " + small + " rows of T");
+        for (boolean costBased: new boolean[]{false, true}){
+            QueryBuilder.useCostBasedJoinOrder = costBased;
+            for (int i = 1; i <= 3; i++){
+                run((costBased ? "cost based" : "query order") + " run " + i, query);
+            }
+        }
+    }
+
+    /**
+     * snowflake query Q(x, y, p, q) :- F(x, y), D(x, p), E(p), G(y, q), H(q) with left-deep and bushy plans,
+     * E and H are small, a left-deep plan must join one of D and G before its filter,
+     * a bushy plan joins G with H before joining them with F, D and E
+     * @param rows number of tuples of F, D and G
+     * @param values number of distinct values of each variable, E and H have 2 of them
+     */
+    private static void bushy(int rows, int values) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "F", "int int", rows, () -> random.nextInt(values) + ", " + random.nextInt(values));
+        writeRelation(db, "D", "int int", rows, () -> random.nextInt(values) + ", " + random.nextInt(values));
+        writeRelation(db, "G", "int int", rows, () -> random.nextInt(values) + ", " + random.nextInt(values));
+        writeRelation(db, "E", "int", 2, () -> String.valueOf(random.nextInt(values)));
+        writeRelation(db, "H", "int", 2, () -> String.valueOf(random.nextInt(values)));
+        Catalog.getInstance().initialize(db.getPath());
+        //without semi-join reduction, which joins acyclic queries in the order of their join tree
+        QueryBuilder.useSemiJoinReduction = false;
+        String query = "Q(x, y, p, q) :- F(x, y), D(x, p), E(p), G(y, q), H(q)";
+        System.out.println(query + ", " + rows + " rows of F, D and G, " + values + " values");
+        for (boolean bushy: new boolean[]{false, true}){
+            QueryBuilder.useBushyJoinTrees = bushy;
+            for (int i = 1; i <= 3; i++){
+                run((bushy ? "bushy" : "left-deep") + " run " + i, query);
+            }
+        }
+    }
+
+    /**
+     * Q(x, v) :- R(x, y), T(u, v), S(y, u) joined in the query's order, where R and T share no variable
+     * @param rows number of tuples of R, S and T
+     */
+    private static void crossProduct(int rows) throws IOException {
+        File db = createDatabase();
+        Random random = new Random(42);
+        writeRelation(db, "R", "int int", rows, () -> random.nextInt(rows) + ", " + random.nextInt(rows));
+        writeRelation(db, "S", "int int", rows, () -> random.nextInt(rows) + ", " + random.nextInt(rows));
+        writeRelation(db, "T", "int int", rows, () -> random.nextInt(rows) + ", " + random.nextInt(rows));
+        Catalog.getInstance().initialize(db.getPath());
+        //without semi-join reduction and cost based ordering, the relations are joined in the query's order
+        QueryBuilder.useSemiJoinReduction = false;
+        QueryBuilder.useCostBasedJoinOrder = false;
+        String query = "Q(x, v) :- R(x, y), T(u, v), S(y, u)";
+        System.out.println(query + ", " + rows + " rows each");
+        for (int i = 1; i <= 3; i++){
+            run("run " + i, query);
+        }
+    }
+
+    /**
+     * aggregate in-memory tuples of R(x, y) that are ordered by x, by hashing and by streaming group by group
+     * @param rows number of tuples
+     * @param rowsPerGroup number of tuples of each value of x
+     */
+    private static void orderedAggregation(int rows, int rowsPerGroup){
+        List<Tuple> tuples = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < rows; i++){
+            tuples.add(new Tuple("R", Arrays.<Term>asList(new IntegerConstant(i / rowsPerGroup), new IntegerConstant(random.nextInt(1000)))));
+        }
+        Head head = new Head("Q", Collections.singletonList(new Variable("x")),
+                Arrays.asList(new SumAggregate(Collections.<Term>singletonList(new Variable("y"))),
+                        new SumAggregate(AggregateFunction.MAX, Collections.<Term>singletonList(new Variable("y")))));
+        Operator input = new TupleListOperator(Arrays.asList("x", "y"), tuples);
+        Operator[] operators = {new SumOperator(input, head), new OrderedSumOperator(input, head)};
+        System.out.println(head + " :- R(x, y), " + rows + " rows ordered by x, " + rows / rowsPerGroup + " groups");
+        for (int pass = 1; pass <= 3; pass++){
+            for (Operator operator: operators){
+                operator.reset();
+                long start = System.nanoTime();
+                long output = 0;
+                while (operator.getNextTuple() != null){
+                    output++;
+                }
+                System.out.printf("pass %d, %s: %d rows, %d ms%n", pass, operator.getClass().getSimpleName(), output, (System.nanoTime() - start) / 1000000);
+            }
+        }
+    }
+
+    /**
+     * generate tuples of R(int, int, string) in memory
+     * @param rows number of tuples
+     * @return the tuples
+     */
+    private static List<Tuple> randomTuples(int rows){
+        Random random = new Random(42);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < rows; i++){
+            List<Term> terms = new ArrayList<>();
+            terms.add(new IntegerConstant(random.nextInt(1000)));
+            terms.add(new IntegerConstant(random.nextInt(1000)));
+            terms.add(new StringConstant("r" + (char) ('a' + random.nextInt(10))));
+            tuples.add(new Tuple("R", terms));
+        }
+        return tuples;
+    }
+
+    /**
+     * get the comparisons of a query
+     * @param queryString the query
+     * @return comparison atoms of the query body
+     */
+    private static List<ComparisonAtom> comparisonsOf(String queryString){
+        List<ComparisonAtom> comparisons = new ArrayList<>();
+        for (Atom atom: QueryParser.parse(queryString).getBody()){
+            if (atom instanceof ComparisonAtom){
+                comparisons.add((ComparisonAtom) atom);
+            }
+        }
+        return comparisons;
+    }
+
+    /**
+     * run a query and print its output size and time
+     * @param label name of this run
+     * @param queryString the query
+     * @return root operator of the plan
+     */
+    private static Operator run(String label, String queryString){
+        Query query = QueryParser.parse(queryString);
+        long start = System.nanoTime();
+        Operator root = new QueryBuilder(query).runQueryBuilder();
+        long rows = 0;
+        while (root.getNextTuple() != null){
+            rows++;
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        System.out.println(label + ": " + rows + " rows, " + millis + " ms");
+        return root;
+    }
+
+    /**
+     * create an empty temporary database directory
+     * @return the database directory
+     */
+    private static File createDatabase() throws IOException {
+        File db = Files.createTempDirectory("minibase-bench").toFile();
+        new File(db, "files").mkdirs();
+        new File(db, "schema.txt").delete();
+        return db;
+    }
+
+    /**
+     * write a random relation and add its schema to the database
+     * @param db database directory
+     * @param name relation name
+     * @param types column types, separated by space
+     * @param rows number of rows
+     * @param row generator of a csv row
+     */
+    private static void writeRelation(File db, String name, String types, int rows, RowGenerator row) throws IOException {
+        try (BufferedWriter schema = new BufferedWriter(new FileWriter(new File(db, "schema.txt"), true))){
+            schema.write(name + " " + types + "\n");
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(new File(db, "files" + File.separator + name + ".csv")))){
+            for (int i = 0; i < rows; i++){
+                writer.write(row.next() + "\n");
+            }
+        }
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue){
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    private interface RowGenerator{
+        String next();
+    }
+}
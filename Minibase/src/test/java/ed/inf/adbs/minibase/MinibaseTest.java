@@ -1,14 +1,47 @@
 package ed.inf.adbs.minibase;
 
+import ed.inf.adbs.minibase.operator.QueryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
  * Unit test for Minibase.
+ * The evaluation queries in data/evaluation are evaluated with every planner option switched off
+ * one at a time, so each join and aggregation algorithm is checked against the expected outputs.
  */
 
 public class MinibaseTest {
+    //directory of the evaluation queries and their expected outputs
+    private static final String EVALUATION_DIR = "data" + File.separator + "evaluation";
+    //number of evaluation queries
+    private static final int QUERIES = 9;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    //planner options before the test, restored after it
+    private int joinBlockSize;
+    private long materializeBudget;
+    private long distinctBudget;
+    private int joinThreads;
+    private int aggregateThreads;
+    private boolean[] flags;
 
     /**
      * Rigorous Test :-)
@@ -17,5 +50,142 @@ public class MinibaseTest {
     public void shouldAnswerWithTrue() {
         assertTrue(true);
     }
-}
 
+    @Before
+    public void saveOptions() {
+        joinBlockSize = QueryBuilder.joinBlockSize;
+        materializeBudget = QueryBuilder.materializeBudget;
+        distinctBudget = QueryBuilder.distinctBudget;
+        joinThreads = QueryBuilder.joinThreads;
+        aggregateThreads = QueryBuilder.aggregateThreads;
+        flags = new boolean[]{QueryBuilder.useSemiJoinReduction, QueryBuilder.useRuntimeFilters, QueryBuilder.useAdaptiveSelection,
+                QueryBuilder.useEagerAggregation, QueryBuilder.useCostBasedJoinOrder,
+                QueryBuilder.useBushyJoinTrees};
+    }
+
+    @After
+    public void restoreOptions() {
+        QueryBuilder.joinBlockSize = joinBlockSize;
+        QueryBuilder.materializeBudget = materializeBudget;
+        QueryBuilder.distinctBudget = distinctBudget;
+        QueryBuilder.joinThreads = joinThreads;
+        QueryBuilder.aggregateThreads = aggregateThreads;
+        QueryBuilder.useSemiJoinReduction = flags[0];
+        QueryBuilder.useRuntimeFilters = flags[1];
+        QueryBuilder.useAdaptiveSelection = flags[2];
+        QueryBuilder.useEagerAggregation = flags[3];
+        QueryBuilder.useCostBasedJoinOrder = flags[4];
+        QueryBuilder.useBushyJoinTrees = flags[5];
+    }
+
+    /**
+     * evaluate every evaluation query with evaluateCQ() and compare the output with the expected output,
+     * the order of output tuples is not compared
+     */
+    private void evaluateAll() throws IOException {
+        for (int i = 1; i <= QUERIES; i++){
+            File output = folder.newFile();
+            Minibase.evaluateCQ(Paths.get(EVALUATION_DIR, "db").toString(),
+                    Paths.get(EVALUATION_DIR, "input", "query" + i + ".txt").toString(), output.getPath());
+            assertEquals("query" + i, readSorted(Paths.get(EVALUATION_DIR, "expected_output", "query" + i + ".csv").toFile()), readSorted(output));
+        }
+    }
+
+    private static List<String> readSorted(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line: Files.readAllLines(file.toPath())){
+            if (!line.isEmpty()){
+                lines.add(line);
+            }
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    @Test
+    public void defaultPlans() throws IOException {
+        evaluateAll();
+    }
+
+    @Test
+    public void singleThreaded() throws IOException {
+        QueryBuilder.joinThreads = 1;
+        QueryBuilder.aggregateThreads = 1;
+        evaluateAll();
+    }
+
+    @Test
+    public void parallel() throws IOException {
+        QueryBuilder.joinThreads = 4;
+        QueryBuilder.aggregateThreads = 4;
+        evaluateAll();
+    }
+
+    @Test
+    public void withoutRuntimeFiltersAndAdaptiveSelection() throws IOException {
+        QueryBuilder.useRuntimeFilters = false;
+        QueryBuilder.useAdaptiveSelection = false;
+        evaluateAll();
+    }
+
+    @Test
+    public void withoutSemiJoinReduction() throws IOException {
+        QueryBuilder.useSemiJoinReduction = false;
+        evaluateAll();
+    }
+
+    @Test
+    public void withoutEagerAggregation() throws IOException {
+        QueryBuilder.useEagerAggregation = false;
+        evaluateAll();
+    }
+
+    @Test
+    public void queryOrderJoins() throws IOException {
+        QueryBuilder.useCostBasedJoinOrder = false;
+        QueryBuilder.useSemiJoinReduction = false;
+        evaluateAll();
+    }
+
+    @Test
+    public void leftDeepJoins() throws IOException {
+        QueryBuilder.useBushyJoinTrees = false;
+        QueryBuilder.useSemiJoinReduction = false;
+        evaluateAll();
+    }
+
+    /**
+     * analyze mode writes the same output as evaluateCQ() and prints the measured plan
+     */
+    @Test
+    public void analyzeWritesTheSameOutput() throws IOException {
+        PrintStream out = System.out;
+        for (int i = 1; i <= QUERIES; i++){
+            File output = folder.newFile();
+            ByteArrayOutputStream plan = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(plan));
+            try {
+                Minibase.explainCQ(Paths.get(EVALUATION_DIR, "db").toString(),
+                        Paths.get(EVALUATION_DIR, "input", "query" + i + ".txt").toString(), output.getPath(), true);
+            }
+            finally {
+                System.setOut(out);
+            }
+            assertEquals("query" + i, readSorted(Paths.get(EVALUATION_DIR, "expected_output", "query" + i + ".csv").toFile()), readSorted(output));
+            assertTrue(plan.toString().startsWith("EXPLAIN ANALYZE "));
+            assertTrue(plan.toString().contains("Execution time: "));
+        }
+    }
+
+    /**
+     * tiny blocks and budgets make nested loop joins use several blocks,
+     * and caches and projections spill to temporary files
+     */
+    @Test
+    public void smallBlocksAndBudgets() throws IOException {
+        QueryBuilder.joinBlockSize = 2;
+        QueryBuilder.materializeBudget = 16;
+        QueryBuilder.distinctBudget = 16;
+        evaluateAll();
+    }
+}
@@ -0,0 +1,106 @@
+package ed.inf.adbs.minibase;
+
+import ed.inf.adbs.minibase.operator.Operator;
+import ed.inf.adbs.minibase.operator.QueryBuilder;
+import ed.inf.adbs.minibase.operator.Tuple;
+import ed.inf.adbs.minibase.parser.QueryParser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A small database in a directory given by a test, its relations are written as csv rows,
+ * and queries are evaluated on it by the same plan as Minibase.evaluateCQ() builds.
+ */
+public class TestDatabase {
+    //database directory
+    private final File directory;
+
+    /**
+     * create an empty database in this directory
+     * @param directory the database directory, usually a temporary folder of the test
+     */
+    public TestDatabase(File directory){
+        this.directory = directory;
+        new File(directory, "files").mkdirs();
+    }
+
+    /**
+     * write a relation and add its schema to the database
+     * @param name relation name
+     * @param types column types, separated by space
+     * @param rows csv rows of the relation
+     * @return this database
+     */
+    public TestDatabase relation(String name, String types, String... rows) throws IOException {
+        try (BufferedWriter schema = new BufferedWriter(new FileWriter(new File(directory, "schema.txt"), true))){
+            schema.write(name + " " + types + "\n");
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(new File(directory, "files" + File.separator + name + ".csv")))){
+            for (String row: rows){
+                writer.write(row + "\n");
+            }
+        }
+        return this;
+    }
+
+    /**
+     * build the plan of a query and read all its output tuples
+     * @param query the query
+     * @return output tuples in the order they are returned
+     */
+    public List<String> evaluate(String query){
+        return read(plan(query));
+    }
+
+    /**
+     * build the plan of a query
+     * @param query the query
+     * @return the root operator of the plan
+     */
+    public Operator plan(String query){
+        Catalog.getInstance().initialize(directory.getPath());
+        return new QueryBuilder(QueryParser.parse(query)).runQueryBuilder();
+    }
+
+    /**
+     * build the plan of a query and read all its output tuples
+     * @param query the query
+     * @return output tuples in sorted order, for queries whose output order is not defined
+     */
+    public List<String> evaluateSorted(String query){
+        List<String> output = evaluate(query);
+        Collections.sort(output);
+        return output;
+    }
+
+    /**
+     * read all output tuples of an operator
+     * @param root the operator
+     * @return output tuples in the order they are returned
+     */
+    public static List<String> read(Operator root){
+        List<String> output = new ArrayList<>();
+        Tuple tuple = root.getNextTuple();
+        while (tuple != null){
+            output.add(tuple.toString());
+            tuple = root.getNextTuple();
+        }
+        return output;
+    }
+
+    /**
+     * the expected output of a query
+     * @param rows output tuples, in sorted order if the output is compared sorted
+     * @return list of the tuples
+     */
+    public static List<String> rows(String... rows){
+        return Arrays.asList(rows);
+    }
+}
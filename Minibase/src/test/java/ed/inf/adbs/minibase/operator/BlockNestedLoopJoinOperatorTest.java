@@ -0,0 +1,41 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for BlockNestedLoopJoinOperator, with blocks smaller than the left input.
+ */
+public class BlockNestedLoopJoinOperatorTest extends JoinOperatorContract {
+
+    @Override
+    protected Operator join(Operator left, Operator right, List<ComparisonAtom> conditions){
+        return new BlockNestedLoopJoinOperator(left, right, conditions, 2);
+    }
+
+    /**
+     * the output does not depend on how many left tuples are in a block
+     */
+    @Test
+    public void blockSizes() throws IOException {
+        for (int blockSize: new int[]{1, 3, 7, 1024}){
+            Operator join = new BlockNestedLoopJoinOperator(scan("R(x, y, z)"), scan("S(x, w, t)"), comparisons(), blockSize);
+            assertEquals(expected(5), sorted(join));
+        }
+    }
+
+    /**
+     * the right input is cached by a materializeOperator in query plans
+     */
+    @Test
+    public void materializedRightInput() throws IOException {
+        Operator right = new MaterializeOperator(scan("S(x, w, t)"), MaterializeOperator.DEFAULT_MEMORY_BUDGET);
+        assertEquals(expected(5), sorted(new BlockNestedLoopJoinOperator(scan("R(x, y, z)"), right, comparisons(), 2)));
+    }
+}
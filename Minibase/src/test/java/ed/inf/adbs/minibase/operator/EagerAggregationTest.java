@@ -0,0 +1,93 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.Head;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.TestDatabase.rows;
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for EagerAggregation.
+ */
+public class EagerAggregationTest {
+
+    @Before
+    public void initializeCatalog() {
+        EvaluationData.initialize();
+    }
+
+    /**
+     * the column types of the variables of R(x, y, z) and S(x, w, t)
+     */
+    private static Map<String,List<String>> types(){
+        Map<String,List<String>> types = new HashMap<>();
+        types.put("x", Arrays.asList("int", "int"));
+        types.put("y", Collections.singletonList("int"));
+        types.put("z", Collections.singletonList("string"));
+        types.put("w", Collections.singletonList("string"));
+        types.put("t", Collections.singletonList("int"));
+        return types;
+    }
+
+    /**
+     * aggregate R(x, y, z) and S(x, w, t) before joining them on x, and aggregate the join
+     * @param head the query's head
+     * @return output tuples in sorted order
+     */
+    private static List<String> evaluate(String head){
+        EagerAggregation eagerAggregation = new EagerAggregation(head(head), comparisons(), types());
+        assertTrue(eagerAggregation.canRewrite());
+        List<Operator> inputs = Arrays.asList(scan("R(x, y, z)"), scan("S(x, w, t)"));
+        List<Operator> rewritten = eagerAggregation.rewrite(inputs);
+        assertNotSame(inputs, rewritten);
+        Head finalHead = eagerAggregation.getFinalHead();
+        return sorted(new SumOperator(new JoinOperator(rewritten.get(0), rewritten.get(1), comparisons()), finalHead));
+    }
+
+    /**
+     * evaluation query 7, and query 9 without its selection
+     */
+    @Test
+    public void evaluationQueries() throws IOException {
+        assertEquals(expected(7), evaluate("Q(SUM(y))"));
+        assertEquals(rows("1, 8", "2, 2", "4, 3", "5, 4", "8, 15"), evaluate("Q(x, SUM(t))"));
+    }
+
+    @Test
+    public void countsAndProducts() {
+        assertEquals(rows("7"), evaluate("Q(COUNT(y))"));
+        assertEquals(rows("7, 374, 37"), evaluate("Q(COUNT(1), SUM(y * t * 2), SUM(y))"));
+    }
+
+    @Test
+    public void canRewrite() {
+        assertTrue(new EagerAggregation(head("Q(x, SUM(y), COUNT(z))"), comparisons(), types()).canRewrite());
+        assertFalse(new EagerAggregation(head("Q(x, y)"), comparisons(), types()).canRewrite());
+        assertFalse(new EagerAggregation(head("Q(SUM(y), MIN(y))"), comparisons(), types()).canRewrite());
+        assertFalse(new EagerAggregation(head("Q(SUM(z))"), comparisons(), types()).canRewrite());
+    }
+
+    /**
+     * a relation whose variables are all needed later is not aggregated,
+     * and nothing is rewritten if no relation is aggregated
+     */
+    @Test
+    public void keepsRelationsWithoutRemovableVariables() {
+        List<Operator> inputs = Arrays.asList(scan("T(x, y)"), scan("T(y, x)"));
+        EagerAggregation eagerAggregation = new EagerAggregation(head("Q(SUM(y))"), comparisons(), types());
+        assertSame(inputs, eagerAggregation.rewrite(inputs));
+    }
+
+    @Test
+    public void emptyInput() {
+        EagerAggregation eagerAggregation = new EagerAggregation(head("Q(x, SUM(t))"), comparisons(), types());
+        List<Operator> rewritten = eagerAggregation.rewrite(Arrays.asList(scan("R(x, y, z)"), empty("x", "w", "t")));
+        assertEquals(Collections.emptyList(), sorted(new SumOperator(
+                new JoinOperator(rewritten.get(0), rewritten.get(1), comparisons()), eagerAggregation.getFinalHead())));
+    }
+}
@@ -0,0 +1,134 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.Catalog;
+import ed.inf.adbs.minibase.TestDatabase;
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.parser.QueryParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Inputs and expected outputs for operator tests, taken from the evaluation database
+ * in data/evaluation/db and the expected outputs of the evaluation queries.
+ */
+final class EvaluationData {
+    //directory of the evaluation queries and their expected outputs
+    static final String EVALUATION_DIR = "data" + java.io.File.separator + "evaluation";
+
+    private EvaluationData(){}
+
+    /**
+     * initialize the catalog with the evaluation database, and the variable renaming state of joins
+     */
+    static void initialize(){
+        Catalog.getInstance().initialize(Paths.get(EVALUATION_DIR, "db").toString());
+        QueryBuilder.appearedVariableName = new ArrayList<>();
+        QueryBuilder.unappearedChar = 'a';
+    }
+
+    /**
+     * scan a relation of the evaluation database, its variables are registered
+     * so joins do not rename another variable to one of them
+     * @param atom the relational atom, like "R(x, y, z)", with variables only
+     * @return the scan operator
+     */
+    static Operator scan(String atom){
+        RelationalAtom relation = atom(atom);
+        for (Term term: relation.getTerms()){
+            if (!QueryBuilder.appearedVariableName.contains(term.toString())){
+                QueryBuilder.appearedVariableName.add(term.toString());
+            }
+        }
+        return new ScanOperator(relation);
+    }
+
+    /**
+     * parse a relational atom
+     * @param atom the relational atom, like "R(x, y, z)"
+     * @return the atom
+     */
+    static RelationalAtom atom(String atom){
+        return (RelationalAtom) QueryParser.parse("Q() :- " + atom).getBody().get(0);
+    }
+
+    /**
+     * an input without tuples
+     * @param variables its variables
+     * @return the empty input
+     */
+    static Operator empty(String... variables){
+        List<String> emptyVariables = new ArrayList<>();
+        Collections.addAll(emptyVariables, variables);
+        return new Operator() {
+            {
+                variableList = emptyVariables;
+            }
+
+            @Override
+            public Tuple getNextTuple() {
+                return null;
+            }
+
+            @Override
+            public void reset() {
+            }
+        };
+    }
+
+    /**
+     * parse comparisons
+     * @param comparisons comparisons like "x < y", "5 <= x"
+     * @return a modifiable list of the comparisons, since joins add the equalities of shared variables to it
+     */
+    static List<ComparisonAtom> comparisons(String... comparisons){
+        List<ComparisonAtom> result = new ArrayList<>();
+        if (comparisons.length == 0){
+            return result;
+        }
+        for (Atom atom: QueryParser.parse("Q() :- " + String.join(", ", comparisons)).getBody()){
+            result.add((ComparisonAtom) atom);
+        }
+        return result;
+    }
+
+    /**
+     * parse the head of a query
+     * @param head the head, like "Q(x, SUM(y))"
+     * @return the head
+     */
+    static Head head(String head){
+        return QueryParser.parse(head + " :- R(x, y, z)").getHead();
+    }
+
+    /**
+     * read all output tuples of an operator
+     * @param operator the operator
+     * @return the output tuples in sorted order
+     */
+    static List<String> sorted(Operator operator){
+        List<String> output = TestDatabase.read(operator);
+        Collections.sort(output);
+        return output;
+    }
+
+    /**
+     * read the expected output of an evaluation query
+     * @param query number of the query
+     * @return the expected output tuples in sorted order
+     */
+    static List<String> expected(int query) throws IOException {
+        List<String> output = new ArrayList<>();
+        for (String line: Files.readAllLines(Paths.get(EVALUATION_DIR, "expected_output", "query" + query + ".csv"))){
+            if (!line.isEmpty()){
+                output.add(line);
+            }
+        }
+        Collections.sort(output);
+        return output;
+    }
+}
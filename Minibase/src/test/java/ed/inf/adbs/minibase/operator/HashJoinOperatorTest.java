@@ -0,0 +1,106 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for HashJoinOperator, single threaded, the parallel join is tested by the extra cases.
+ */
+public class HashJoinOperatorTest extends JoinOperatorContract {
+
+    @Override
+    protected Operator join(Operator left, Operator right, List<ComparisonAtom> conditions){
+        return new HashJoinOperator(left, right, conditions, 1, false);
+    }
+
+    /**
+     * every number of threads gives the same output
+     */
+    @Test
+    public void threads() throws IOException {
+        for (int threads: new int[]{2, 3, 8}){
+            Operator join = new HashJoinOperator(scan("R(x, y, z)"), scan("S(u, w, t)"), comparisons("x = u"), threads, false);
+            assertEquals(expected(5), sorted(join));
+        }
+    }
+
+    /**
+     * a runtime filter on the scan of the left child drops rows that have no match,
+     * without changing the output
+     */
+    @Test
+    public void runtimeFilter() throws IOException {
+        HashJoinOperator join = new HashJoinOperator(scan("R(x, y, z)"), scan("S(x, w, t)"), comparisons(), 1, true);
+        assertEquals(expected(5), sorted(join));
+        assertEquals(1, join.getRuntimeFilters().size());
+    }
+
+    /**
+     * only the right child is read before the first output, the left child is probed as it is read
+     */
+    @Test
+    public void probeSideIsStreamed() {
+        CountingOperator left = new CountingOperator(scan("R(x, y, z)"));
+        Operator join = new HashJoinOperator(left, scan("S(x, w, t)"), comparisons(), 1, false);
+        assertEquals("1, 9, 'adbs', 1, 'smith', 8", join.getNextTuple().toString());
+        assertEquals(2, left.rows);
+    }
+
+    /**
+     * a reset probes the left child again, the hash tables of the right child are kept
+     */
+    @Test
+    public void resetKeepsTheBuildSide() throws IOException {
+        CountingOperator right = new CountingOperator(scan("S(x, w, t)"));
+        Operator join = new HashJoinOperator(scan("R(x, y, z)"), right, comparisons(), 2, false);
+        assertEquals(expected(5), sorted(join));
+        join.reset();
+        assertEquals(expected(5), sorted(join));
+        assertEquals(5, right.rows);
+    }
+
+    @Test
+    public void equalityKey() {
+        List<String> left = Arrays.asList("x", "y");
+        assertTrue(HashJoinOperator.hasEqualityKey(left, Arrays.asList("x", "w"), comparisons()));
+        assertTrue(HashJoinOperator.hasEqualityKey(left, Arrays.asList("u", "w"), comparisons("u = y")));
+        assertFalse(HashJoinOperator.hasEqualityKey(left, Arrays.asList("u", "w"), comparisons("u < y", "y = 1")));
+        assertFalse(HashJoinOperator.hasEqualityKey(null, Arrays.asList("u", "w"), comparisons()));
+    }
+
+    /**
+     * counts the tuples its child returns
+     */
+    private static class CountingOperator extends Operator{
+        private final Operator child;
+        private int rows;
+
+        CountingOperator(Operator child){
+            this.child = child;
+            this.variableList = child.getVariableList();
+        }
+
+        @Override
+        public Tuple getNextTuple() {
+            Tuple tuple = child.getNextTuple();
+            if (tuple != null){
+                rows++;
+            }
+            return tuple;
+        }
+
+        @Override
+        public void reset() {
+            child.reset();
+        }
+    }
+}
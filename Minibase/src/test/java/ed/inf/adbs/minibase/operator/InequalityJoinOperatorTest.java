@@ -0,0 +1,32 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.comparisons;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for InequalityJoinOperator.
+ */
+public class InequalityJoinOperatorTest extends JoinOperatorContract {
+
+    @Override
+    protected Operator join(Operator left, Operator right, List<ComparisonAtom> conditions){
+        return new InequalityJoinOperator(left, right, conditions);
+    }
+
+    @Test
+    public void inequality() {
+        List<String> left = Arrays.asList("x", "y");
+        List<String> right = Arrays.asList("u", "w");
+        assertTrue(InequalityJoinOperator.hasInequality(left, right, comparisons("y < w")));
+        assertTrue(InequalityJoinOperator.hasInequality(left, right, comparisons("w >= x")));
+        assertFalse(InequalityJoinOperator.hasInequality(left, right, comparisons("y != w", "y = u")));
+        assertFalse(InequalityJoinOperator.hasInequality(left, right, comparisons("5 < w", "x < y")));
+    }
+}
@@ -0,0 +1,63 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+import ed.inf.adbs.minibase.base.Term;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.comparisons;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for JoinEvaluation.
+ */
+public class JoinEvaluationTest {
+    //left tuple (x, y) = (1, 'a') and right tuple (a, w) = (1, 5), where a is the renamed shared variable x
+    private static final List<String> LEFT = Arrays.asList("x", "y");
+    private static final List<String> RIGHT = Arrays.asList("a", "w");
+    private static final List<String> RIGHT_ORIGINAL = Arrays.asList("x", "w");
+    private static final List<Term> LEFT_TERMS = Arrays.asList(new IntegerConstant(1), new StringConstant("a"));
+    private static final List<Term> RIGHT_TERMS = Arrays.asList(new IntegerConstant(1), new IntegerConstant(5));
+
+    private static boolean evaluate(String... conditions){
+        return new JoinEvaluation(LEFT, RIGHT, RIGHT_ORIGINAL, comparisons(conditions)).evaluate(LEFT_TERMS, RIGHT_TERMS);
+    }
+
+    @Test
+    public void noConditions() {
+        assertTrue(evaluate());
+    }
+
+    /**
+     * a renamed variable is found by its new name, the other right variables by their original name
+     */
+    @Test
+    public void renamedVariables() {
+        assertTrue(evaluate("x = a", "w > x"));
+        assertFalse(evaluate("x != a"));
+    }
+
+    /**
+     * terms are compared in the order they are written in
+     */
+    @Test
+    public void operandOrder() {
+        assertTrue(evaluate("x < w", "w >= x", "5 <= w", "4 < w"));
+        assertFalse(evaluate("w < x"));
+        assertFalse(evaluate("w < 5"));
+    }
+
+    /**
+     * values of different types never match
+     */
+    @Test
+    public void differentTypes() {
+        assertFalse(evaluate("y = w"));
+        assertFalse(evaluate("y != w"));
+        assertTrue(evaluate("y = 'a'"));
+    }
+}
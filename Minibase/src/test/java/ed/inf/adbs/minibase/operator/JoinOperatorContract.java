@@ -0,0 +1,126 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.Utils;
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.Term;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases every binary join operator must pass on the evaluation database,
+ * a test class of a join operator extends this class and creates its operator.
+ */
+public abstract class JoinOperatorContract {
+
+    /**
+     * create the tested join operator
+     * @param left left child
+     * @param right right child
+     * @param conditions join conditions
+     * @return the join operator
+     */
+    protected abstract Operator join(Operator left, Operator right, List<ComparisonAtom> conditions);
+
+    @Before
+    public void initializeCatalog() {
+        EvaluationData.initialize();
+    }
+
+    /**
+     * the join of R and S on a shared variable is the output of evaluation query 5
+     */
+    @Test
+    public void sharedVariable() throws IOException {
+        assertEquals(expected(5), sorted(join(scan("R(x, y, z)"), scan("S(x, w, t)"), comparisons())));
+    }
+
+    @Test
+    public void equalityCondition() throws IOException {
+        assertEquals(expected(5), sorted(join(scan("R(x, y, z)"), scan("S(u, w, t)"), comparisons("x = u"))));
+        assertEquals(expected(5), sorted(join(scan("R(x, y, z)"), scan("S(u, w, t)"), comparisons("u = x"))));
+    }
+
+    @Test
+    public void constantFirstCondition() throws IOException {
+        List<String> expected = new ArrayList<>();
+        for (String row: expected(5)){
+            if (Integer.parseInt(row.substring(0, row.indexOf(','))) >= 5){
+                expected.add(row);
+            }
+        }
+        assertEquals(expected, sorted(join(scan("R(x, y, z)"), scan("S(x, w, t)"), comparisons("5 <= x"))));
+    }
+
+    @Test
+    public void inequalityCondition() {
+        assertEquals(nestedLoop("R(x, y, z)", "T(u, r)", (l, r) -> value(l, 1) < value(r, 1)),
+                sorted(join(scan("R(x, y, z)"), scan("T(u, r)"), comparisons("y < r"))));
+        assertEquals(nestedLoop("R(x, y, z)", "T(u, r)", (l, r) -> value(l, 1) <= value(r, 1) && value(l, 0) > value(r, 0)),
+                sorted(join(scan("R(x, y, z)"), scan("T(u, r)"), comparisons("r >= y", "u < x"))));
+    }
+
+    @Test
+    public void sharedVariableAndInequality() {
+        assertEquals(nestedLoop("R(x, y, z)", "T(x, r)", (l, r) -> value(l, 0) == value(r, 0) && value(l, 1) > value(r, 1)),
+                sorted(join(scan("R(x, y, z)"), scan("T(x, r)"), comparisons("y > r"))));
+    }
+
+    @Test
+    public void crossProduct() {
+        assertEquals(nestedLoop("T(x, y)", "T(u, r)", (l, r) -> true),
+                sorted(join(scan("T(x, y)"), scan("T(u, r)"), comparisons())));
+    }
+
+    @Test
+    public void emptyInput() {
+        assertEquals(Collections.emptyList(), sorted(join(empty("x", "y", "z"), scan("S(x, w, t)"), comparisons())));
+        assertEquals(Collections.emptyList(), sorted(join(scan("R(x, y, z)"), empty("x", "w", "t"), comparisons("y < t"))));
+        assertEquals(Collections.emptyList(), sorted(join(scan("R(x, y, z)"), scan("S(u, w, t)"), comparisons("x = u", "x > 8"))));
+    }
+
+    @Test
+    public void resetReturnsTheSameOutput() throws IOException {
+        Operator join = join(scan("R(x, y, z)"), scan("S(x, w, t)"), comparisons());
+        sorted(join);
+        join.reset();
+        assertEquals(expected(5), sorted(join));
+    }
+
+    /**
+     * join 2 relations by checking every pair
+     * @param leftAtom the left relation
+     * @param rightAtom the right relation
+     * @param matches whether a pair of left and right terms is joined
+     * @return the joined tuples in sorted order
+     */
+    private static List<String> nestedLoop(String leftAtom, String rightAtom, BiPredicate<List<Term>,List<Term>> matches){
+        List<String> output = new ArrayList<>();
+        Operator left = scan(leftAtom);
+        for (Tuple leftTuple = left.getNextTuple(); leftTuple != null; leftTuple = left.getNextTuple()){
+            Operator right = scan(rightAtom);
+            for (Tuple rightTuple = right.getNextTuple(); rightTuple != null; rightTuple = right.getNextTuple()){
+                if (matches.test(leftTuple.getTerms(), rightTuple.getTerms())){
+                    List<Term> terms = new ArrayList<>(leftTuple.getTerms());
+                    terms.addAll(rightTuple.getTerms());
+                    output.add(Utils.join(terms, ", "));
+                }
+            }
+        }
+        Collections.sort(output);
+        return output;
+    }
+
+    private static int value(List<Term> terms, int position){
+        return ((IntegerConstant) terms.get(position)).getValue();
+    }
+}
@@ -0,0 +1,16 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+
+import java.util.List;
+
+/**
+ * Unit test for JoinOperator, the tuple nested loop join.
+ */
+public class JoinOperatorTest extends JoinOperatorContract {
+
+    @Override
+    protected Operator join(Operator left, Operator right, List<ComparisonAtom> conditions){
+        return new JoinOperator(left, right, conditions);
+    }
+}
@@ -0,0 +1,86 @@
+package ed.inf.adbs.minibase.operator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.TestDatabase.rows;
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for LeapfrogTriejoinOperator.
+ */
+public class LeapfrogTriejoinOperatorTest {
+
+    @Before
+    public void initializeCatalog() {
+        EvaluationData.initialize();
+    }
+
+    /**
+     * evaluation query 6, with the constant-first selection 1 = x on R
+     */
+    @Test
+    public void sharedVariableOfThreeRelations() throws IOException {
+        Operator triejoin = new LeapfrogTriejoinOperator(Arrays.asList(
+                new SelectOperator(scan("R(x, y, z)"), comparisons("1 = x")), scan("S(x, w, t)"), scan("T(x, r)")));
+        assertEquals(expected(6), sorted(new ProjectOperator(triejoin, head("Q(y, r)"))));
+    }
+
+    /**
+     * duplicate rows are kept, so SUM over the triejoin is evaluation query 7
+     */
+    @Test
+    public void keepsMultiplicity() throws IOException {
+        Operator triejoin = new LeapfrogTriejoinOperator(Arrays.asList(scan("R(x, y, z)"), scan("S(x, w, t)")));
+        assertEquals(expected(7), sorted(new SumOperator(triejoin, head("Q(SUM(y))"))));
+    }
+
+    /**
+     * the triangle query is cyclic, the only triangle of T is the loop 1 -> 1
+     */
+    @Test
+    public void triangle() {
+        Operator triejoin = new LeapfrogTriejoinOperator(Arrays.asList(scan("T(x, y)"), scan("T(y, z)"), scan("T(z, x)")));
+        assertEquals(rows("1, 1, 1"), sorted(new ProjectOperator(triejoin, head("Q(x, y, z)"))));
+        Operator path = new LeapfrogTriejoinOperator(Arrays.asList(scan("T(x, y)"), scan("T(y, z)")));
+        assertEquals(rows("1, 1, 1", "1, 1, 2", "1, 1, 3", "1, 2, 3", "8, 9, 2", "9, 2, 3"),
+                sorted(new ProjectOperator(path, head("Q(x, y, z)"))));
+    }
+
+
+    /**
+     * the output is ordered by the variable shared by most relations first
+     */
+    @Test
+    public void ordering() {
+        Operator triejoin = new LeapfrogTriejoinOperator(Arrays.asList(scan("R(x, y, z)"), scan("S(x, w, t)"), scan("T(x, r)")));
+        assertEquals("x", triejoin.getOrdering().get(0));
+        assertTrue(OrderedSumOperator.isGrouped(triejoin, head("Q(x, SUM(y))")));
+    }
+
+    @Test
+    public void emptyInput() {
+        Operator triejoin = new LeapfrogTriejoinOperator(Arrays.asList(scan("R(x, y, z)"), empty("x", "w", "t"), scan("T(x, r)")));
+        assertEquals(Collections.emptyList(), sorted(triejoin));
+        Operator noMatch = new LeapfrogTriejoinOperator(Arrays.asList(
+                new SelectOperator(scan("R(x, y, z)"), comparisons("x = 3")), scan("S(x, w, t)")));
+        assertEquals(Collections.emptyList(), sorted(noMatch));
+    }
+
+    @Test
+    public void resetReturnsTheSameOutput() {
+        Operator triejoin = new LeapfrogTriejoinOperator(Arrays.asList(scan("R(x, y, z)"), scan("S(x, w, t)")));
+        List<String> output = sorted(triejoin);
+        triejoin.reset();
+        assertEquals(output, sorted(triejoin));
+        assertEquals(7, output.size());
+    }
+
+}
@@ -0,0 +1,117 @@
+package ed.inf.adbs.minibase.operator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for MaterializeOperator.
+ */
+public class MaterializeOperatorTest {
+
+    @Before
+    public void initializeCatalog() {
+        EvaluationData.initialize();
+    }
+
+    /**
+     * every pass returns the output of evaluation query 1, the first from the child and the others from the cache
+     */
+    @Test
+    public void cachedPasses() throws IOException {
+        int files = spillFiles();
+        Operator materialize = new MaterializeOperator(scan("R(x, y, z)"), MaterializeOperator.DEFAULT_MEMORY_BUDGET);
+        for (int pass = 0; pass < 3; pass++){
+            assertEquals(expected(1), sorted(materialize));
+            materialize.reset();
+        }
+        assertEquals(files, spillFiles());
+        assertTrue(materialize.describe().endsWith("7 tuples cached in memory"));
+    }
+
+    /**
+     * a budget smaller than the relation moves the cache to a temporary file
+     */
+    @Test
+    public void spilledPasses() throws IOException {
+        int files = spillFiles();
+        Operator materialize = new MaterializeOperator(scan("R(x, y, z)"), 0);
+        for (int pass = 0; pass < 3; pass++){
+            assertEquals(expected(1), sorted(materialize));
+            materialize.reset();
+        }
+        assertEquals(files + 1, spillFiles());
+        assertTrue(materialize.describe().endsWith("7 tuples cached on disk"));
+        materialize.close();
+    }
+
+    /**
+     * a reset before the first pass is finished reads the rest of the child into the cache
+     */
+    @Test
+    public void resetDuringFirstPass() throws IOException {
+        Operator materialize = new MaterializeOperator(scan("R(x, y, z)"), 40);
+        materialize.getNextTuple();
+        materialize.getNextTuple();
+        materialize.reset();
+        assertEquals(expected(1), sorted(materialize));
+    }
+
+    @Test
+    public void emptyInput() {
+        Operator materialize = new MaterializeOperator(empty("x", "y"), 0);
+        assertEquals(Collections.emptyList(), sorted(materialize));
+        materialize.reset();
+        assertEquals(Collections.emptyList(), sorted(materialize));
+    }
+
+    /**
+     * the strings of R take more memory in the dictionary than its 21 int values take in the array,
+     * so a budget that only fits the array moves the cache to a temporary file
+     */
+    @Test
+    public void dictionaryCountsInBudget() throws IOException {
+        int files = spillFiles();
+        Operator materialize = new MaterializeOperator(scan("R(x, y, z)"), 7 * 3 * Integer.BYTES);
+        for (int pass = 0; pass < 3; pass++){
+            assertEquals(expected(1), sorted(materialize));
+            materialize.reset();
+        }
+        assertEquals(files + 1, spillFiles());
+        materialize.close();
+        Operator cached = new MaterializeOperator(scan("R(x, y, z)"), 7 * 3 * Integer.BYTES + 7 * 200);
+        sorted(cached);
+        assertEquals(files, spillFiles());
+    }
+
+    /**
+     * close() deletes the temporary file, also if the last pass stopped early
+     */
+    @Test
+    public void closeDeletesSpillFile() {
+        int files = spillFiles();
+        Operator materialize = new MaterializeOperator(scan("R(x, y, z)"), 0);
+        sorted(materialize);
+        materialize.reset();
+        assertNotNull(materialize.getNextTuple());
+        assertEquals(files + 1, spillFiles());
+        materialize.close();
+        assertEquals(files, spillFiles());
+    }
+
+    /**
+     * count the temporary files of materialize operators
+     */
+    private static int spillFiles(){
+        File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles((dir, name) -> name.startsWith("minibase-materialize"));
+        return files == null ? 0 : files.length;
+    }
+}
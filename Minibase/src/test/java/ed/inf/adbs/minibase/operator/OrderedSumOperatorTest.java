@@ -0,0 +1,67 @@
+package ed.inf.adbs.minibase.operator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static ed.inf.adbs.minibase.TestDatabase.read;
+import static ed.inf.adbs.minibase.TestDatabase.rows;
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for OrderedSumOperator.
+ */
+public class OrderedSumOperatorTest {
+
+    @Before
+    public void initializeCatalog() {
+        EvaluationData.initialize();
+    }
+
+    /**
+     * evaluation query 9 over a triejoin, which is ordered by the shared variable x
+     */
+    @Test
+    public void evaluationQuery9() throws IOException {
+        Operator triejoin = new LeapfrogTriejoinOperator(Arrays.asList(
+                new SelectOperator(scan("R(x, y, z)"), comparisons("5 <= x")), scan("S(x, w, t)")));
+        assertTrue(OrderedSumOperator.isGrouped(triejoin, head("Q(x, SUM(t))")));
+        assertEquals(expected(9), read(new OrderedSumOperator(triejoin, head("Q(x, SUM(t))"))));
+    }
+
+    /**
+     * R is stored ordered by x, so its groups of x are next to each other
+     */
+    @Test
+    public void severalAggregates() {
+        assertEquals(rows("1, 1, 9, 9, 9, 18", "2, 1, 7, 7, 7, 14", "4, 1, 2, 2, 2, 4", "5, 1, 0, 0, 0, 0", "8, 3, 1, 9, 6, 38"),
+                read(new OrderedSumOperator(scan("R(x, y, z)"), head("Q(x, COUNT(y), MIN(y), MAX(y), AVG(y), SUM(y * 2))"))));
+        assertEquals(rows("37"), read(new OrderedSumOperator(scan("R(x, y, z)"), head("Q(SUM(y))"))));
+    }
+
+    @Test
+    public void isGrouped() {
+        Operator triejoin = new LeapfrogTriejoinOperator(Arrays.asList(scan("R(x, y, z)"), scan("S(x, w, t)")));
+        assertTrue(OrderedSumOperator.isGrouped(triejoin, head("Q(SUM(t))")));
+        assertFalse(OrderedSumOperator.isGrouped(triejoin, head("Q(t, SUM(y))")));
+        assertFalse(OrderedSumOperator.isGrouped(scan("R(x, y, z)"), head("Q(x, SUM(y))")));
+    }
+
+    @Test
+    public void emptyInput() {
+        assertEquals(Collections.emptyList(), read(new OrderedSumOperator(empty("x", "y"), head("Q(x, SUM(y))"))));
+        assertEquals(Collections.emptyList(), read(new OrderedSumOperator(empty("x", "y"), head("Q(SUM(y))"))));
+    }
+
+    @Test
+    public void resetReturnsTheSameOutput() {
+        Operator sum = new OrderedSumOperator(scan("R(x, y, z)"), head("Q(x, SUM(y))"));
+        read(sum);
+        sum.reset();
+        assertEquals(rows("1, 9", "2, 7", "4, 2", "5, 0", "8, 19"), read(sum));
+    }
+}
@@ -0,0 +1,136 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import org.junit.Test;
+
+import java.util.*;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.comparisons;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for PredicateInference.
+ */
+public class PredicateInferenceTest {
+
+    /**
+     * check the comparisons with every variable in an int column
+     */
+    private static boolean satisfiable(String... comparisons){
+        return satisfiable(types("int"), comparisons);
+    }
+
+    private static boolean satisfiable(Map<String,List<String>> types, String... comparisons){
+        return new PredicateInference(comparisons(comparisons)).isSatisfiable(types);
+    }
+
+    /**
+     * the column types of the variables x, y, u and s
+     * @param type type of the columns of x, y and u, s is always a string column
+     */
+    private static Map<String,List<String>> types(String type){
+        Map<String,List<String>> types = new HashMap<>();
+        for (String variable: Arrays.asList("x", "y", "u")){
+            types.put(variable, new ArrayList<>(Collections.singletonList(type)));
+        }
+        types.put("s", new ArrayList<>(Collections.singletonList("string")));
+        return types;
+    }
+
+    @Test
+    public void disjointBoundsAreContradictory() {
+        assertFalse(satisfiable("x > 5", "x < 3"));
+        assertFalse(satisfiable("x >= 5", "x < 5"));
+        assertTrue(satisfiable("x >= 5", "x <= 5"));
+        assertTrue(satisfiable("x > 3", "x < 5"));
+    }
+
+    @Test
+    public void excludedIntegerBoundsMoveToTheNextInteger() {
+        assertFalse(satisfiable("x > 2", "x < 3"));
+        assertTrue(satisfiable("x >= 2", "x < 3"));
+        assertTrue(satisfiable("x > 2", "x <= 3"));
+    }
+
+    @Test
+    public void notEqualEmptiesASingleValueRange() {
+        assertFalse(satisfiable("x > 2", "x < 4", "x != 3"));
+        assertTrue(satisfiable("x > 2", "x < 4", "x != 5"));
+        assertFalse(satisfiable("x >= 3", "x <= 3", "x != 3"));
+        assertTrue(satisfiable("x > 2", "x < 5", "x != 3"));
+    }
+
+    @Test
+    public void equalitiesWithConstants() {
+        assertFalse(satisfiable("x = 3", "x != 3"));
+        assertFalse(satisfiable("x = 3", "x = 4"));
+        assertFalse(satisfiable("x = 3", "x > 3"));
+        assertTrue(satisfiable("x = 3", "x = 3", "x >= 3"));
+    }
+
+    @Test
+    public void constantFirstComparisonsAreFlipped() {
+        assertFalse(satisfiable("5 < x", "3 > x"));
+        assertTrue(satisfiable("5 > x", "3 < x"));
+        assertFalse(satisfiable("3 = x", "x != 3"));
+    }
+
+    @Test
+    public void comparisonsBetweenConstants() {
+        assertFalse(satisfiable("1 = 2"));
+        assertTrue(satisfiable("1 < 2"));
+        assertTrue(satisfiable("'a' != 'b'"));
+        assertFalse(satisfiable("'b' < 'a'"));
+    }
+
+    @Test
+    public void restrictionsHoldForTheWholeEquivalenceClass() {
+        assertFalse(satisfiable("x = y", "y > 5", "x < 5"));
+        assertFalse(satisfiable("x = y", "y = u", "u = 1", "x = 2"));
+        assertFalse(satisfiable("x = y", "x != y"));
+        assertFalse(satisfiable("x = y", "x < y"));
+        assertTrue(satisfiable("x = y", "x <= y"));
+        assertTrue(satisfiable("x < y", "x > 5", "y < 5"));
+    }
+
+    @Test
+    public void stringRanges() {
+        assertFalse(satisfiable("s > 'b'", "s < 'a'"));
+        assertTrue(satisfiable("s >= 'a'", "s <= 'a'"));
+        assertFalse(satisfiable("s >= 'a'", "s <= 'a'", "s != 'a'"));
+        //strings are not adjusted like integers, 'aa' is between them
+        assertTrue(satisfiable("s > 'a'", "s < 'b'"));
+    }
+
+    @Test
+    public void mixedTypesAreContradictory() {
+        assertFalse(satisfiable("x = 'a'"));
+        assertFalse(satisfiable(types("string"), "x = 1"));
+        assertFalse(satisfiable("x = s"));
+        assertFalse(satisfiable("x < s"));
+        assertTrue(satisfiable("s = 'a'"));
+        Map<String,List<String>> types = types("int");
+        types.get("x").add("string");
+        assertFalse(satisfiable(types, "x > 1"));
+    }
+
+    @Test
+    public void inferConstantsThroughEqualities() {
+        List<String> inferred = new ArrayList<>();
+        for (ComparisonAtom compare: new PredicateInference(comparisons("x = u", "x = 1", "5 < y", "y = x")).infer()){
+            inferred.add(compare.toString());
+        }
+        Collections.sort(inferred);
+        List<String> expected = new ArrayList<>();
+        for (ComparisonAtom compare: comparisons("u = 1", "y = 1", "x > 5", "u > 5")){
+            expected.add(compare.toString());
+        }
+        Collections.sort(expected);
+        assertEquals(expected, inferred);
+    }
+
+    @Test
+    public void inferNothingWithoutEqualities() {
+        assertTrue(new PredicateInference(comparisons("x < y", "x = 1", "y != 2")).infer().isEmpty());
+    }
+}
@@ -0,0 +1,107 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.Term;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.TestDatabase.rows;
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for ProjectOperator.
+ */
+public class ProjectOperatorTest {
+
+    @Before
+    public void initializeCatalog() {
+        EvaluationData.initialize();
+    }
+
+    /**
+     * evaluation query 3, and a projection of T whose rows are duplicates after projection
+     */
+    @Test
+    public void duplicatesAreEliminated() throws IOException {
+        assertEquals(expected(3), sorted(new ProjectOperator(scan("R(x, y, z)"), head("Q(x, y)"))));
+        assertEquals(rows("1", "2", "4", "8", "9"), sorted(new ProjectOperator(scan("T(x, r)"), head("Q(x)"))));
+    }
+
+    /**
+     * reset forgets the tuples already returned, so a second pass has the same output
+     */
+    @Test
+    public void resetReturnsTheSameOutput() {
+        Operator project = new ProjectOperator(scan("T(x, r)"), head("Q(x)"));
+        sorted(project);
+        project.reset();
+        assertEquals(rows("1", "2", "4", "8", "9"), sorted(project));
+    }
+
+    @Test
+    public void emptyInput() {
+        assertEquals(Collections.emptyList(), sorted(new ProjectOperator(empty("x", "y"), head("Q(y)"))));
+    }
+
+    /**
+     * a budget smaller than the distinct tuples spills them to partition files, the output is the same
+     */
+    @Test
+    public void spilledDistinct() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++){
+            expected.add(Integer.toString(i));
+        }
+        Collections.sort(expected);
+        Operator project = new ProjectOperator(generated(), head("Q(x)"), 16);
+        for (int pass = 0; pass < 2; pass++){
+            assertEquals(expected, sorted(project));
+            project.reset();
+        }
+        project.close();
+    }
+
+    /**
+     * close() deletes the partition files, also if the projection stopped early
+     */
+    @Test
+    public void closeDeletesSpillFiles() {
+        int files = spillFiles();
+        Operator project = new ProjectOperator(generated(), head("Q(x)"), 16);
+        for (int i = 0; i < 10; i++){
+            project.getNextTuple();
+        }
+        assertTrue(spillFiles() > files);
+        project.close();
+        assertEquals(files, spillFiles());
+    }
+
+    /**
+     * 3000 tuples with x from 0 to 999, every value appears 3 times
+     * @return tuples of variable x
+     */
+    private static Operator generated(){
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 3000; i++){
+            tuples.add(new Tuple("T", Collections.<Term>singletonList(new IntegerConstant(i * 7 % 1000))));
+        }
+        return new TupleListOperator(Arrays.asList("x"), tuples);
+    }
+
+    /**
+     * count the temporary files of distinct projections
+     */
+    private static int spillFiles(){
+        File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles((dir, name) -> name.startsWith("minibase-distinct"));
+        return files == null ? 0 : files.length;
+    }
+}
@@ -0,0 +1,142 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.TestDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.TestDatabase.rows;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for the plans built by QueryBuilder.
+ */
+public class QueryBuilderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestDatabase db;
+    //planner options before the test, restored after it
+    private boolean[] flags;
+
+    @Before
+    public void createDatabase() throws IOException {
+        db = new TestDatabase(folder.newFolder())
+                .relation("E", "int int", "1, 1", "4, 3")
+                .relation("D", "int int int", "1, 3, 2", "5, 3, 1")
+                .relation("H", "int int", pairs(20, 30))
+                .relation("A", "int int", pairs(20, 3))
+                .relation("P", "int int", pairs(3, 40))
+                .relation("B", "int int", pairs(30, 2))
+                .relation("C", "int int", pairs(2, 40));
+        flags = new boolean[]{QueryBuilder.useSemiJoinReduction, QueryBuilder.useCostBasedJoinOrder, QueryBuilder.useBushyJoinTrees};
+    }
+
+    @After
+    public void restoreOptions() {
+        QueryBuilder.useSemiJoinReduction = flags[0];
+        QueryBuilder.useCostBasedJoinOrder = flags[1];
+        QueryBuilder.useBushyJoinTrees = flags[2];
+    }
+
+    /**
+     * a selection that empties a relation makes its join inputs empty, the plan must still be built
+     */
+    @Test
+    public void joinWithEmptiedInputIsEmpty() {
+        assertEquals(rows(), db.evaluate("Q(w, r) :- E(w, w), D(r, y, z), E(2, y), z < y"));
+        assertEquals(rows(), db.evaluate("Q(r) :- E(w, x), D(r, y, z), E(2, y), z < y, x < r"));
+        assertEquals(rows(), db.evaluate("Q(r, SUM(z)) :- D(r, y, z), E(2, y), E(w, x), z < w"));
+    }
+
+    /**
+     * the same queries have output when the emptying selection is removed
+     */
+    @Test
+    public void joinWithoutEmptiedInput() {
+        assertEquals(rows("1, 1", "1, 5"), db.evaluateSorted("Q(w, r) :- E(w, x), D(r, y, z), E(4, y), z < y, x < 2"));
+        assertEquals(rows("1, 2", "5, 1"), db.evaluateSorted("Q(r, SUM(z)) :- D(r, y, z), E(4, y), E(w, x), z < w"));
+    }
+
+    /**
+     * contradictory comparisons give an empty output, also for SUM
+     */
+    @Test
+    public void contradictionIsEmpty() {
+        assertEquals(rows(), db.evaluate("Q(x) :- E(x, y), D(x, u, v), y > 2, u = y, u < 3"));
+        assertEquals(rows(), db.evaluate("Q(SUM(x)) :- E(x, y), x = 'a'"));
+    }
+
+    /**
+     * a head with several aggregates is parsed and evaluated in one aggregation
+     */
+    @Test
+    public void severalAggregates() {
+        assertEquals(rows("1, 1, 1, 1", "4, 1, 3, 12"), db.evaluateSorted("Q(x, COUNT(y), MAX(y), SUM(x * y)) :- E(x, y)"));
+    }
+
+    /**
+     * the snowflake query is acyclic, so its relations are reduced by semi-joins, and the reduced relations
+     * are still ordered by the join order optimizer, which joins each arm before it meets the centre
+     */
+    @Test
+    public void reducedSnowflakeQueryIsJoinedByBushyPlan() {
+        String query = "Q(u, v) :- H(a, b), A(a, p), P(p, u), B(b, q), C(q, v)";
+        assertTrue(isBushy(db.plan(query)));
+        assertEquals(1600, db.evaluate(query).size());
+        QueryBuilder.useBushyJoinTrees = false;
+        assertFalse(isBushy(db.plan(query)));
+        assertEquals(1600, db.evaluate(query).size());
+    }
+
+    /**
+     * whether a plan has a join whose inputs are both joins
+     * @param operator root of the plan
+     * @return whether the plan is bushy
+     */
+    private static boolean isBushy(Operator operator){
+        if (operator instanceof JoinOperator && hasJoin(operator.getChildren().get(0)) && hasJoin(operator.getChildren().get(1))){
+            return true;
+        }
+        for (Operator child: operator.getChildren()){
+            if (isBushy(child)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasJoin(Operator operator){
+        if (operator instanceof JoinOperator){
+            return true;
+        }
+        for (Operator child: operator.getChildren()){
+            if (hasJoin(child)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * rows of a relation that pairs every value of its first column with every value of its second column
+     * @param first number of values of the first column, from 0
+     * @param second number of values of the second column, from 0
+     * @return csv rows
+     */
+    private static String[] pairs(int first, int second){
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < first * second; i++){
+            rows.add(i / second + ", " + i % second);
+        }
+        return rows.toArray(new String[0]);
+    }
+}
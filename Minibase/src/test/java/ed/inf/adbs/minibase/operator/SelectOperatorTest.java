@@ -0,0 +1,67 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.Term;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for SelectOperator.
+ */
+public class SelectOperatorTest {
+
+    @Before
+    public void initializeCatalog() {
+        EvaluationData.initialize();
+    }
+
+    /**
+     * evaluation query 2 with a restriction that drops no tuple, checked in query order and adaptively
+     */
+    @Test
+    public void evaluationQuery() throws IOException {
+        for (boolean adaptive: new boolean[]{false, true}){
+            Operator select = new SelectOperator(scan("R(x, y, z)"), comparisons("z != 'none'", "y = 9"), adaptive);
+            assertEquals(expected(2), sorted(new ProjectOperator(select, head("Q(x, y, z)"))));
+        }
+    }
+
+    /**
+     * a restriction that passes every tuple is written first, the adaptive order moves
+     * the selective restriction in front of it, and the output is unchanged
+     */
+    @Test
+    public void adaptiveOrder() {
+        SelectOperator select = new SelectOperator(generated(), comparisons("x >= 0", "x = 7"), true);
+        for (int pass = 0; pass < 3; pass++){
+            assertEquals(Collections.singletonList("7"), sorted(select));
+            select.reset();
+        }
+        assertTrue(select.getStatistics(), select.getStatistics().startsWith("x = 7"));
+        SelectOperator fixed = new SelectOperator(generated(), comparisons("x >= 0", "x = 7"), false);
+        assertEquals(Collections.singletonList("7"), sorted(fixed));
+        assertTrue(fixed.getStatistics().startsWith("x >= 0, x = 7"));
+    }
+
+    /**
+     * tuples with x from 0 to 19999
+     * @return tuples of variable x
+     */
+    private static Operator generated(){
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 20000; i++){
+            tuples.add(new Tuple("T", Collections.<Term>singletonList(new IntegerConstant(i))));
+        }
+        return new TupleListOperator(Arrays.asList("x"), tuples);
+    }
+}
@@ -0,0 +1,79 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Unit test for SemiJoinReducer.
+ */
+public class SemiJoinReducerTest {
+
+    @Before
+    public void initializeCatalog() {
+        EvaluationData.initialize();
+    }
+
+    /**
+     * reduce the relations of a query and get the remaining tuples of every relation
+     * @param inputs base operators of the relations, in the order of atoms
+     * @param atoms relations of the query
+     * @return map from the variables of a relation to its remaining tuples in sorted order
+     */
+    private static Map<String,List<String>> reduce(List<Operator> inputs, String... atoms){
+        List<RelationalAtom> relations = new ArrayList<>();
+        for (String atom: atoms){
+            relations.add(atom(atom));
+        }
+        JoinGraph.JoinTree joinTree = new JoinGraph(relations).joinTree();
+        assertNotNull(joinTree);
+        Map<String,List<String>> result = new HashMap<>();
+        for (Operator reduced: new SemiJoinReducer(inputs, joinTree).reduce()){
+            result.put(reduced.getVariableList().toString(), sorted(reduced));
+        }
+        return result;
+    }
+
+    /**
+     * the relations of evaluation query 6 without its selection, x = 5 has no T tuple
+     * and x = 9 has no R or S tuple, so these tuples are dangling
+     */
+    @Test
+    public void removesDanglingTuples() {
+        Map<String,List<String>> reduced = reduce(Arrays.asList(scan("R(x, y, z)"), scan("S(x, w, t)"), scan("T(x, r)")),
+                "R(x, y, z)", "S(x, w, t)", "T(x, r)");
+        assertEquals(Arrays.asList("1, 9, 'adbs'", "2, 7, 'anlp'", "4, 2, 'ids'", "8, 1, 'mlpr'", "8, 9, 'ppls'", "8, 9, 'rl'"),
+                reduced.get("[x, y, z]"));
+        assertEquals(Arrays.asList("1, 'smith', 8", "2, 'anka', 2", "4, 'rhcp', 3", "8, 'pistols', 5"), reduced.get("[x, w, t]"));
+        assertEquals(Arrays.asList("1, 1", "1, 2", "1, 3", "2, 3", "4, 5", "8, 9"), reduced.get("[x, r]"));
+    }
+
+    /**
+     * a chain R(x, y, z) - T(y, r) - S(r, w, t): T keeps the tuples whose y is in R and whose r is in S,
+     * and R keeps the y values of the remaining T tuples
+     */
+    @Test
+    public void chain() {
+        Map<String,List<String>> reduced = reduce(Arrays.asList(scan("R(x, y, z)"), scan("T(y, r)"), scan("S(r, w, t)")),
+                "R(x, y, z)", "T(y, r)", "S(r, w, t)");
+        assertEquals(Arrays.asList("1, 1", "1, 2", "9, 2"), reduced.get("[y, r]"));
+        assertEquals(Arrays.asList("1, 9, 'adbs'", "8, 1, 'mlpr'", "8, 9, 'ppls'", "8, 9, 'rl'"), reduced.get("[x, y, z]"));
+        assertEquals(Arrays.asList("1, 'smith', 8", "2, 'anka', 2"), reduced.get("[r, w, t]"));
+    }
+
+    @Test
+    public void emptyInputEmptiesAllRelations() {
+        Map<String,List<String>> reduced = reduce(Arrays.asList(scan("R(x, y, z)"), empty("x", "w", "t"), scan("T(x, r)")),
+                "R(x, y, z)", "S(x, w, t)", "T(x, r)");
+        for (List<String> tuples: reduced.values()){
+            assertEquals(Collections.emptyList(), tuples);
+        }
+        assertEquals(3, reduced.size());
+    }
+}
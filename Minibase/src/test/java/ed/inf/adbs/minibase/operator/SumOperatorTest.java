@@ -0,0 +1,122 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.Term;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.TestDatabase.read;
+import static ed.inf.adbs.minibase.TestDatabase.rows;
+import static ed.inf.adbs.minibase.operator.EvaluationData.*;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for SumOperator.
+ */
+public class SumOperatorTest {
+
+    @Before
+    public void initializeCatalog() {
+        EvaluationData.initialize();
+    }
+
+    /**
+     * evaluation queries 7, 8 and 9, query 9 with its selection as the constant-first comparison 5 <= x
+     */
+    @Test
+    public void evaluationQueries() throws IOException {
+        for (int threads: new int[]{1, 4}){
+            assertEquals(expected(7), sorted(new SumOperator(
+                    new JoinOperator(scan("R(x, y, z)"), scan("S(x, w, t)"), comparisons()), head("Q(SUM(y))"), threads)));
+            assertEquals(expected(8), sorted(new SumOperator(
+                    new JoinOperator(scan("R(x, y, z)"), scan("S(u, v, w)"), comparisons()), head("Q(SUM(1))"), threads)));
+            assertEquals(expected(9), sorted(new SumOperator(
+                    new JoinOperator(new SelectOperator(scan("R(x, y, z)"), comparisons("5 <= x")), scan("S(x, w, t)"), comparisons()),
+                    head("Q(x, SUM(t))"), threads)));
+        }
+    }
+
+    /**
+     * all aggregates of a head are computed in one pass, AVG rounds down
+     */
+    @Test
+    public void severalAggregates() {
+        assertEquals(rows("1, 1, 9, 9, 9, 18", "2, 1, 7, 7, 7, 14", "4, 1, 2, 2, 2, 4", "5, 1, 0, 0, 0, 0", "8, 3, 1, 9, 6, 38"),
+                sorted(new SumOperator(scan("R(x, y, z)"), head("Q(x, COUNT(y), MIN(y), MAX(y), AVG(y), SUM(y * 2))"))));
+        assertEquals(rows("7, 0, 72, 37"),
+                sorted(new SumOperator(scan("R(x, y, z)"), head("Q(COUNT(1), MIN(y), MAX(x * y), SUM(y))"))));
+    }
+
+    /**
+     * a group can be a string, and the same variable can be a group and an aggregated term
+     */
+    @Test
+    public void stringAndRepeatedGroupVariables() {
+        assertEquals(rows("'anka', 2, 2", "'bowie', 5, 5", "'pistols', 8, 8", "'rhcp', 4, 4", "'smith', 1, 1"),
+                sorted(new SumOperator(scan("S(x, w, t)"), head("Q(w, x, SUM(x))"))));
+    }
+
+    /**
+     * the parallel path returns the same groups in the same order as the single threaded path,
+     * a small input is aggregated without worker threads
+     */
+    @Test
+    public void threadsKeepGroupOrder() {
+        for (int threads: new int[]{2, 3, 8}){
+            assertEquals(read(new SumOperator(scan("T(x, y)"), head("Q(x, SUM(y))"), 1)),
+                    read(new SumOperator(scan("T(x, y)"), head("Q(x, SUM(y))"), threads)));
+            assertEquals(read(new SumOperator(generated(3 * SumOperator.PARALLEL_THRESHOLD), head("Q(x, SUM(y), MIN(y), COUNT(y))"), 1)),
+                    read(new SumOperator(generated(3 * SumOperator.PARALLEL_THRESHOLD), head("Q(x, SUM(y), MIN(y), COUNT(y))"), threads)));
+        }
+    }
+
+    /**
+     * a worker that fails ends the aggregation, the reading thread does not wait for a full queue
+     */
+    @Test(timeout = 60000, expected = IllegalStateException.class)
+    public void failedWorkerEndsAggregation() {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 2 * SumOperator.PARALLEL_THRESHOLD; i++){
+            //the tuples after the threshold have no value of y, so the workers fail
+            List<Term> terms = i < SumOperator.PARALLEL_THRESHOLD
+                    ? Arrays.<Term>asList(new IntegerConstant(i % 10), new IntegerConstant(1))
+                    : Collections.<Term>singletonList(new IntegerConstant(i % 10));
+            tuples.add(new Tuple("T", terms));
+        }
+        sorted(new SumOperator(new TupleListOperator(Arrays.asList("x", "y"), tuples), head("Q(x, SUM(y))"), 2));
+    }
+
+    /**
+     * an input whose groups first appear in a scrambled order, and new groups still appear in every batch
+     * @param rows number of tuples
+     * @return tuples of variables x and y
+     */
+    private static Operator generated(int rows){
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < rows; i++){
+            int group = (int) ((i * 7919L) % (i / 64 + 1));
+            tuples.add(new Tuple("T", Arrays.<Term>asList(new IntegerConstant(group), new IntegerConstant(i % 1000 - 500))));
+        }
+        return new TupleListOperator(Arrays.asList("x", "y"), tuples);
+    }
+
+    @Test
+    public void emptyInputHasNoGroup() {
+        assertEquals(Collections.emptyList(), sorted(new SumOperator(empty("x", "y"), head("Q(SUM(y))"))));
+        assertEquals(Collections.emptyList(), sorted(new SumOperator(empty("x", "y"), head("Q(x, SUM(y))"), 4)));
+    }
+
+    @Test
+    public void resetReturnsTheSameOutput() throws IOException {
+        Operator sum = new SumOperator(new JoinOperator(scan("R(x, y, z)"), scan("S(x, w, t)"), comparisons()), head("Q(SUM(y))"));
+        sorted(sum);
+        sum.reset();
+        assertEquals(expected(7), sorted(sum));
+    }
+}
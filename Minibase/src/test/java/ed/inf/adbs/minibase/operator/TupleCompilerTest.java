@@ -0,0 +1,78 @@
+package ed.inf.adbs.minibase.operator;
+
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.operator.EvaluationData.comparisons;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for TupleCompiler.
+ */
+public class TupleCompilerTest {
+    //tuple (x, y, z) = (3, 'b', 4)
+    private static final List<String> VARIABLES = Arrays.asList("x", "y", "z");
+    private static final List<Term> TERMS = Arrays.asList(new IntegerConstant(3), new StringConstant("b"), new IntegerConstant(4));
+
+    private static boolean select(String... conditions){
+        return TupleCompiler.compileSelection(VARIABLES, comparisons(conditions)).test(TERMS);
+    }
+
+    /**
+     * comparisons with an integer constant, a string constant and another column, in both operand orders
+     */
+    @Test
+    public void selection() {
+        assertTrue(select());
+        assertTrue(select("x < 4", "4 > x", "y >= 'a'", "'c' > y", "x < z", "z != x"));
+        assertFalse(select("x >= 4"));
+        assertFalse(select("'b' < y"));
+        assertFalse(select("z <= x"));
+    }
+
+    /**
+     * comparisons between 2 constants are folded, values of different types never match
+     */
+    @Test
+    public void constantsAndTypes() {
+        assertTrue(select("1 < 2"));
+        assertFalse(select("'a' = 'b'"));
+        assertFalse(select("y = 3"));
+        assertFalse(select("x != 'b'"));
+    }
+
+    /**
+     * integers are compared by value, also outside the range of cached Integer objects
+     */
+    @Test
+    public void largeIntegers() {
+        List<Term> terms = Arrays.asList(new IntegerConstant(100000), new IntegerConstant(7));
+        assertTrue(TupleCompiler.compileSelection(Arrays.asList("x", "w"), comparisons("x = 100000", "w < x", "100000 > w")).test(terms));
+        assertEquals(new IntegerConstant(100000), terms.get(0));
+        assertEquals(new IntegerConstant(100000).hashCode(), terms.get(0).hashCode());
+    }
+
+    @Test
+    public void projectionAndProduct() {
+        assertEquals(Arrays.asList(TERMS.get(2), TERMS.get(0)), TupleCompiler.compileProjection(VARIABLES, Arrays.asList("z", "w", "x")).apply(TERMS));
+        assertEquals(24, TupleCompiler.compileProduct(VARIABLES, Arrays.asList(new Variable("x"), new IntegerConstant(2), new Variable("z"))).apply(TERMS));
+        assertEquals(0, TupleCompiler.compileProduct(VARIABLES, Arrays.asList(new Variable("y"), new Variable("x"))).apply(TERMS));
+        assertEquals(3, TupleCompiler.compileProduct(VARIABLES, Arrays.asList(new Variable("x"), new Variable("y"))).apply(TERMS));
+    }
+
+    @Test
+    public void flip() {
+        assertEquals(ComparisonOperator.GT, TupleCompiler.flip(ComparisonOperator.LT));
+        assertEquals(ComparisonOperator.LEQ, TupleCompiler.flip(ComparisonOperator.GEQ));
+        assertEquals(ComparisonOperator.NEQ, TupleCompiler.flip(ComparisonOperator.NEQ));
+    }
+}